@@ -1,7 +1,6 @@
 package com.tokorokoshi.tokoro;
 
 import org.springframework.boot.SpringApplication;
-import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
@@ -13,7 +12,6 @@ import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 @SpringBootApplication(
         exclude = {
                 MongoReactiveDataAutoConfiguration.class,
-                MetricsAutoConfiguration.class,
                 DataSourceAutoConfiguration.class,
         },
         scanBasePackages = "com.tokorokoshi.tokoro"
@@ -0,0 +1,40 @@
+package com.tokorokoshi.tokoro.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.ClientHttpRequestFactories;
+import org.springframework.boot.web.client.ClientHttpRequestFactorySettings;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configures the HTTP client of the AI provider.
+ * <p>
+ * The OpenAI models are built by Spring AI from the auto-configured {@code RestClient.Builder},
+ * so the timeouts are set with a customizer of that builder.
+ * Without them, a stalled call would hold its AI bulkhead slot for as long as the provider keeps the connection open.
+ * </p>
+ */
+@Configuration
+public class AiConfiguration {
+
+    /**
+     * A bean that sets the connect and read timeouts of the REST clients.
+     *
+     * @param connectTimeoutMs maximum time to open a connection
+     * @param readTimeoutMs    maximum time to wait for the response
+     * @return A new customizer
+     */
+    @Bean
+    public RestClientCustomizer aiRestClientTimeouts(
+            @Value("${ai.http.connect-timeout-ms}") long connectTimeoutMs,
+            @Value("${ai.http.read-timeout-ms}") long readTimeoutMs
+    ) {
+        ClientHttpRequestFactorySettings settings = ClientHttpRequestFactorySettings.DEFAULTS
+                .withConnectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .withReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return builder -> builder.requestFactory(ClientHttpRequestFactories.get(settings));
+    }
+}
@@ -1,13 +1,23 @@
 package com.tokorokoshi.tokoro.configuration;
 
 import com.auth0.client.mgmt.ManagementAPI;
+import com.auth0.net.client.Auth0HttpClient;
+import com.auth0.net.client.DefaultHttpClient;
 import com.tokorokoshi.tokoro.modules.auth0.Auth0Properties;
-import com.tokorokoshi.tokoro.modules.auth0.TokenService;
+import com.tokorokoshi.tokoro.modules.auth0.Auth0RequestScheduler;
+import com.tokorokoshi.tokoro.modules.auth0.BulkheadAuth0HttpClient;
+import com.tokorokoshi.tokoro.modules.auth0.ManagementTokenManager;
+import com.tokorokoshi.tokoro.modules.auth0.RateLimitedAuth0HttpClient;
+import com.tokorokoshi.tokoro.modules.bulkhead.Bulkhead;
 import com.tokorokoshi.tokoro.modules.exceptions.auth0.Auth0ManagementException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * Configuration class for setting up Auth0 Management API client.
  * This class provides a Spring-managed bean for the {@link ManagementAPI} which
@@ -17,41 +27,86 @@ import org.springframework.context.annotation.Configuration;
 @EnableConfigurationProperties(Auth0Properties.class)
 public class Auth0Configuration {
     private final Auth0Properties authProperties;
-    private final TokenService tokenService;
+    private final ManagementTokenManager tokenManager;
+    private final Bulkhead bulkhead;
+    private final Auth0RequestScheduler scheduler;
+
+    @Value("${auth0.http.connect-timeout-seconds}")
+    private int connectTimeoutSeconds;
+
+    @Value("${auth0.http.read-timeout-seconds}")
+    private int readTimeoutSeconds;
+
+    @Value("${auth0.rate-limit.max-retries}")
+    private int rateLimitMaxRetries;
 
     /**
      * Constructor for Auth0Configuration.
      *
      * @param auth0Properties properties containing necessary configuration for Auth0.
-     * @param tokenService    service responsible for managing and retrieving Auth0 tokens.
+     * @param tokenManager    manager keeping the Management API token fresh.
+     * @param bulkhead        bulkhead bounding concurrent Management API requests.
+     * @param scheduler       scheduler keeping Management API requests within the rate limit.
      */
-    public Auth0Configuration(Auth0Properties auth0Properties, TokenService tokenService) {
+    public Auth0Configuration(
+            Auth0Properties auth0Properties,
+            ManagementTokenManager tokenManager,
+            @Qualifier(BulkheadConfiguration.AUTH0_BULKHEAD) Bulkhead bulkhead,
+            Auth0RequestScheduler scheduler
+    ) {
         this.authProperties = auth0Properties;
-        this.tokenService = tokenService;
+        this.tokenManager = tokenManager;
+        this.bulkhead = bulkhead;
+        this.scheduler = scheduler;
     }
 
     /**
      * Creates and provides a {@link ManagementAPI} bean with a dynamically updated token.
-     * The Management API token is retrieved from the {@link TokenService}, which caches it
-     * and evicts it after a fixed duration to ensure fresh tokens.
+     * The Management API token comes from the {@link ManagementTokenManager},
+     * which swaps a new token into the client before the current one expires.
+     * Requests are scheduled within the Auth0 rate limit, then sent with timeouts and through the Auth0 bulkhead,
+     * so calls waiting for the rate limit do not hold bulkhead slots.
      *
-     * @return an instance of {@link ManagementAPI} configured with the domain and token from {@link TokenService}.
+     * @return an instance of {@link ManagementAPI} configured with the domain and token from {@link ManagementTokenManager}.
      * @throws Auth0ManagementException if there is an error initializing the Management API with the token.
      */
     @Bean
     public ManagementAPI managementAPI() throws Auth0ManagementException {
-        // Attempt to retrieve the Management API token from the TokenService
-        String managementApiToken = tokenService.getManagementApiToken();
+        // Listen for refreshed tokens before reading the current one, so no refresh is missed
+        AtomicReference<ManagementAPI> client = new AtomicReference<>();
+        tokenManager.onRefresh(token -> {
+            ManagementAPI current = client.get();
+            if (current != null) {
+                current.setApiToken(token);
+            }
+        });
+        String managementApiToken = tokenManager.getToken();
 
-        // Validate the token before using it
-        if (managementApiToken == null || managementApiToken.isBlank()) {
-            throw new Auth0ManagementException("Retrieved Management API token is null or empty");
-        }
+        // Bound how long and how many requests may wait on Auth0.
+        // Rate-limited requests are retried by the scheduler, which honors Retry-After,
+        // instead of the blind backoff of the SDK.
+        Auth0HttpClient httpClient = new RateLimitedAuth0HttpClient(
+                new BulkheadAuth0HttpClient(
+                        DefaultHttpClient.newBuilder()
+                                .withConnectTimeout(connectTimeoutSeconds)
+                                .withReadTimeout(readTimeoutSeconds)
+                                .withMaxRetries(0)
+                                .build(),
+                        bulkhead
+                ),
+                scheduler,
+                rateLimitMaxRetries
+        );
 
-        // Create and return a new ManagementAPI instance with the provided token
-        return ManagementAPI.newBuilder(
+        // Create a new ManagementAPI instance with the provided token
+        ManagementAPI managementAPI = ManagementAPI.newBuilder(
                 authProperties.getDomain(),
                 managementApiToken
-        ).build();
+        ).withHttpClient(httpClient).build();
+
+        // Swap in every refreshed token, including one that arrived while the client was built
+        client.set(managementAPI);
+        managementAPI.setApiToken(tokenManager.getToken());
+        return managementAPI;
     }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.tokorokoshi.tokoro.configuration;
+
+import com.tokorokoshi.tokoro.modules.bulkhead.Bulkhead;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures a bulkhead per outbound dependency,
+ * so a stall in one of them does not take the threads other endpoints need.
+ * <p>
+ * MongoDB is bounded by its connection pool, see {@link MongoConfiguration}.
+ * </p>
+ */
+@Configuration
+public class BulkheadConfiguration {
+    public static final String AI_BULKHEAD = "aiBulkhead";
+    public static final String AUTH0_BULKHEAD = "auth0Bulkhead";
+    public static final String FILE_STORAGE_BULKHEAD = "fileStorageBulkhead";
+
+    /**
+     * A bean that bounds concurrent calls to the AI provider.
+     *
+     * @param maxConcurrent maximum number of concurrent calls
+     * @param maxWaitMs     maximum time to wait for a free slot
+     * @param meterRegistry registry of the bulkhead metrics
+     * @return A new bulkhead
+     */
+    @Bean(name = AI_BULKHEAD)
+    public Bulkhead aiBulkhead(
+            @Value("${bulkhead.ai.max-concurrent}") int maxConcurrent,
+            @Value("${bulkhead.ai.max-wait-ms}") long maxWaitMs,
+            MeterRegistry meterRegistry
+    ) {
+        return new Bulkhead("ai", maxConcurrent, maxWaitMs, meterRegistry);
+    }
+
+    /**
+     * A bean that bounds concurrent calls to the Auth0 Management API.
+     *
+     * @param maxConcurrent maximum number of concurrent calls
+     * @param maxWaitMs     maximum time to wait for a free slot
+     * @param meterRegistry registry of the bulkhead metrics
+     * @return A new bulkhead
+     */
+    @Bean(name = AUTH0_BULKHEAD)
+    public Bulkhead auth0Bulkhead(
+            @Value("${bulkhead.auth0.max-concurrent}") int maxConcurrent,
+            @Value("${bulkhead.auth0.max-wait-ms}") long maxWaitMs,
+            MeterRegistry meterRegistry
+    ) {
+        return new Bulkhead("auth0", maxConcurrent, maxWaitMs, meterRegistry);
+    }
+
+    /**
+     * A bean that bounds concurrent calls to the object storage.
+     *
+     * @param maxConcurrent maximum number of concurrent calls
+     * @param maxWaitMs     maximum time to wait for a free slot
+     * @param meterRegistry registry of the bulkhead metrics
+     * @return A new bulkhead
+     */
+    @Bean(name = FILE_STORAGE_BULKHEAD)
+    public Bulkhead fileStorageBulkhead(
+            @Value("${bulkhead.storage.max-concurrent}") int maxConcurrent,
+            @Value("${bulkhead.storage.max-wait-ms}") long maxWaitMs,
+            MeterRegistry meterRegistry
+    ) {
+        return new Bulkhead("storage", maxConcurrent, maxWaitMs, meterRegistry);
+    }
+}
@@ -0,0 +1,95 @@
+package com.tokorokoshi.tokoro.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configures the executors used for blocking I/O outside the request thread.
+ * <p>
+ * With {@code spring.threads.virtual.enabled}, Tomcat, the {@code @Async} task executor,
+ * the scheduler and the object storage executor all run on virtual threads.
+ * Every executor propagates the security context of the submitting thread,
+ * so the authenticated user is known inside asynchronous tasks.
+ * </p>
+ */
+@Configuration
+@EnableAsync
+public class ExecutorConfiguration {
+    /**
+     * Name of the executor that runs object storage calls.
+     */
+    public static final String FILE_STORAGE_EXECUTOR = "fileStorageExecutor";
+
+    /**
+     * Name of the executor that runs the parts of composite endpoints in parallel.
+     */
+    public static final String COMPOSITE_EXECUTOR = "compositeExecutor";
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    /**
+     * A bean that copies the security context into the tasks of the
+     * auto-configured {@code @Async} task executor.
+     *
+     * @return A new task decorator
+     */
+    @Bean
+    public TaskDecorator securityContextTaskDecorator() {
+        return DelegatingSecurityContextRunnable::new;
+    }
+
+    /**
+     * A bean that runs object storage calls off the common fork-join pool:
+     * one virtual thread per call in virtual thread mode,
+     * a cached platform thread pool otherwise.
+     *
+     * @return A new executor
+     */
+    @Bean(name = FILE_STORAGE_EXECUTOR, destroyMethod = "close")
+    public ExecutorService fileStorageExecutor() {
+        ExecutorService executor = virtualThreadsEnabled
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newCachedThreadPool();
+        return new DelegatingSecurityContextExecutorService(executor);
+    }
+
+    /**
+     * A bean that runs the parts of composite endpoints in parallel:
+     * one virtual thread per part in virtual thread mode, so a part that is cancelled on timeout frees
+     * nothing but its own thread, and parts never wait behind the ones of other requests.
+     * Otherwise a fixed platform thread pool with a bounded queue, which rejects parts once the queue is full.
+     *
+     * @param threads       the number of platform threads
+     * @param queueCapacity the number of parts that may wait for a platform thread
+     * @return A new executor
+     */
+    @Bean(name = COMPOSITE_EXECUTOR, destroyMethod = "close")
+    public ExecutorService compositeExecutor(
+            @Value("${composite.executor.threads}") int threads,
+            @Value("${composite.executor.queue-capacity}") int queueCapacity
+    ) {
+        ExecutorService executor = virtualThreadsEnabled
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("composite-", 0).factory())
+                : new ThreadPoolExecutor(
+                        threads,
+                        threads,
+                        0,
+                        TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity),
+                        Thread.ofPlatform().name("composite-", 0).factory()
+                );
+        return new DelegatingSecurityContextExecutorService(executor);
+    }
+}
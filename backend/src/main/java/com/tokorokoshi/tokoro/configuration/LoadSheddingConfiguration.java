@@ -0,0 +1,64 @@
+package com.tokorokoshi.tokoro.configuration;
+
+import com.tokorokoshi.tokoro.modules.overload.GradientConcurrencyLimit;
+import com.tokorokoshi.tokoro.modules.overload.LoadSheddingFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.cors.CorsConfigurationSource;
+
+import java.util.List;
+
+/**
+ * Configures load shedding of HTTP requests.
+ */
+@Configuration
+public class LoadSheddingConfiguration {
+    @Value("${load-shedding.initial-limit}")
+    private int initialLimit;
+
+    @Value("${load-shedding.min-limit}")
+    private int minLimit;
+
+    @Value("${load-shedding.max-limit}")
+    private int maxLimit;
+
+    @Value("${load-shedding.high-priority-reads}")
+    private List<String> highPriorityReads;
+
+    @Value("${load-shedding.low-priority-routes}")
+    private List<String> lowPriorityRoutes;
+
+    @Value("${load-shedding.retry-after-seconds}")
+    private long retryAfterSeconds;
+
+    /**
+     * Registers the load shedding filter ahead of every other filter,
+     * so shed requests cost as little as possible.
+     * The filter adds the CORS headers to shed responses itself, since the CORS filter runs after it.
+     *
+     * @param meterRegistry           registry of the load shedding metrics
+     * @param corsConfigurationSource CORS settings of the application
+     * @return The filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<LoadSheddingFilter> loadSheddingFilter(
+            MeterRegistry meterRegistry,
+            CorsConfigurationSource corsConfigurationSource
+    ) {
+        var filter = new LoadSheddingFilter(
+                new GradientConcurrencyLimit(initialLimit, minLimit, maxLimit),
+                highPriorityReads,
+                lowPriorityRoutes,
+                retryAfterSeconds,
+                meterRegistry,
+                corsConfigurationSource
+        );
+        var registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -4,12 +4,17 @@ import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsConnectionPoolListener;
+import org.bson.UuidRepresentation;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
 import org.springframework.data.mongodb.core.MongoTemplate;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Configures the MongoDB connection.
  */
@@ -22,16 +27,43 @@ public class MongoConfiguration {
     @Value("${spring.data.mongodb.uri}")
     private String uri;
 
+    @Value("${mongodb.pool.max-size}")
+    private int poolMaxSize;
+
+    @Value("${mongodb.pool.max-wait-ms}")
+    private long poolMaxWaitMs;
+
+    @Value("${mongodb.connect-timeout-ms}")
+    private int connectTimeoutMs;
+
+    @Value("${mongodb.read-timeout-ms}")
+    private int readTimeoutMs;
+
     /**
      * A bean that provides the database connection.
+     * The connection pool acts as the bulkhead of the database:
+     * it bounds concurrent operations, and an operation that waits too long
+     * for a connection fails instead of holding its request thread.
+     *
+     * @param meterRegistry The registry of the connection pool metrics
      * @return A new MongoDB client
      */
     @Bean
-    public MongoClient client() {
+    public MongoClient client(MeterRegistry meterRegistry) {
         ConnectionString connectionString = new ConnectionString(uri);
         MongoClientSettings mongoClientSettings = MongoClientSettings
                 .builder()
                 .applyConnectionString(connectionString)
+                .uuidRepresentation(UuidRepresentation.STANDARD)
+                .applyToConnectionPoolSettings(pool -> pool
+                        .maxSize(poolMaxSize)
+                        .maxWaitTime(poolMaxWaitMs, TimeUnit.MILLISECONDS)
+                        .addConnectionPoolListener(
+                                new MongoMetricsConnectionPoolListener(meterRegistry)
+                        ))
+                .applyToSocketSettings(socket -> socket
+                        .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                        .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS))
                 .build();
         return MongoClients.create(mongoClientSettings);
     }
@@ -0,0 +1,17 @@
+package com.tokorokoshi.tokoro.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} background jobs.
+ * <p>
+ * Because the application runs with lazy initialization,
+ * a scheduled bean only starts once it is created,
+ * so beans that nothing else depends on must be marked {@code @Lazy(false)}.
+ * </p>
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
@@ -106,6 +106,7 @@ public class SecurityConfiguration {
                                             "/privacy/**",
                                             "/about/**",
                                             "/features/**",
+                                            "/landing",
                                             "/places/**",
                                             "/testimonials/**",
                                             "/reviews/**",
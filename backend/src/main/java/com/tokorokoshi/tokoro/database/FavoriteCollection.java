@@ -0,0 +1,27 @@
+package com.tokorokoshi.tokoro.database;
+
+import com.mongodb.lang.NonNull;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Represents a collection of favorite places of a user in the database,
+ * one document per collection.
+ */
+@Document(collection = "collection")
+public record FavoriteCollection(
+        @Id
+        UUID id,
+        @NonNull
+        String userId,
+        @NonNull
+        String name,
+        @NonNull
+        List<String> placesIds,
+        Instant createdAt
+) {
+}
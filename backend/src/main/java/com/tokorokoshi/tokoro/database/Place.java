@@ -28,7 +28,9 @@ public record Place(
         @NonNull
         List<String> pictures,
         @NonNull
-        double rating
+        double rating,
+        EnrichmentStatus enrichmentStatus,
+        String contentFingerprint
 ) {
     /**
      * Creates a new place with the given ID.
@@ -45,7 +47,9 @@ public record Place(
             categoryId,
             tags,
             pictures,
-            rating
+            rating,
+            enrichmentStatus,
+            contentFingerprint
         );
     }
 
@@ -64,7 +68,9 @@ public record Place(
                 categoryId,
                 tags,
                 pictures,
-                rating
+                rating,
+                enrichmentStatus,
+                contentFingerprint
         );
     }
 
@@ -83,7 +89,73 @@ public record Place(
                 categoryId,
                 tags,
                 pictures,
-                rating
+                rating,
+                enrichmentStatus,
+                contentFingerprint
         );
     }
+
+    /**
+     * Creates a new place with the given enrichment status.
+     *
+     * @param enrichmentStatus The tag enrichment status of the place
+     * @return A new place with the given enrichment status
+     */
+    public Place withEnrichmentStatus(EnrichmentStatus enrichmentStatus) {
+        return new Place(
+                id,
+                name,
+                description,
+                location,
+                categoryId,
+                tags,
+                pictures,
+                rating,
+                enrichmentStatus,
+                contentFingerprint
+        );
+    }
+
+    /**
+     * Creates a new place with the given content fingerprint.
+     *
+     * @param contentFingerprint The fingerprint of the content the tags are generated from
+     * @return A new place with the given content fingerprint
+     */
+    public Place withContentFingerprint(String contentFingerprint) {
+        return new Place(
+                id,
+                name,
+                description,
+                location,
+                categoryId,
+                tags,
+                pictures,
+                rating,
+                enrichmentStatus,
+                contentFingerprint
+        );
+    }
+
+    /**
+     * The possible states of the background tag generation for a place.
+     * Places saved before enrichment was introduced have no status
+     * and are treated as enriched.
+     */
+    public enum EnrichmentStatus {
+        /**
+         * Tags are queued for generation.
+         */
+        PENDING,
+
+        /**
+         * Tags have been generated for the current place content.
+         */
+        ENRICHED,
+
+        /**
+         * Tag generation gave up after exhausting its retries.
+         */
+        FAILED
+    }
 }
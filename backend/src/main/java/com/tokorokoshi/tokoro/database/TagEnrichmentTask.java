@@ -0,0 +1,48 @@
+package com.tokorokoshi.tokoro.database;
+
+import com.mongodb.lang.NonNull;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Represents a queued tag generation job for a place in the database.
+ */
+@Document(collection = "tag_enrichment_task")
+public record TagEnrichmentTask(
+        @Id
+        String id,
+        @NonNull
+        String placeId,
+        String contentFingerprint,
+        @NonNull
+        Status status,
+        int attempts,
+        Instant nextAttemptAt,
+        Instant lockedUntil,
+        String lastError,
+        @CreatedDate
+        Instant createdAt
+) {
+    /**
+     * The possible statuses of a tag enrichment task.
+     */
+    public enum Status {
+        /**
+         * The task is waiting for a worker.
+         */
+        QUEUED,
+
+        /**
+         * The task is leased by a worker until {@code lockedUntil}.
+         */
+        IN_PROGRESS,
+
+        /**
+         * The task exhausted its retries.
+         */
+        FAILED
+    }
+}
@@ -0,0 +1,21 @@
+package com.tokorokoshi.tokoro.database;
+
+import com.mongodb.lang.NonNull;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Represents a collection of favorite places of a user in the database.
+ */
+public record UserCollection(
+        @NonNull
+        UUID id,
+        @NonNull
+        String name,
+        @NonNull
+        List<String> placesIds,
+        Instant createdAt
+) {
+}
@@ -0,0 +1,96 @@
+package com.tokorokoshi.tokoro.database;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Represents a local copy of an Auth0 user in the database,
+ * used to list and search users without calling the Management API.
+ * The search terms are the lowercase email, name and nickname, used for prefix search.
+ */
+@Document(collection = "user_directory")
+public record UserDirectoryEntry(
+        @Id
+        String id,
+        String username,
+        String email,
+        String phoneNumber,
+        String picture,
+        String name,
+        String nickname,
+        String givenName,
+        String familyName,
+        Date createdAt,
+        Date updatedAt,
+        Map<String, Object> appMetadata,
+        Map<String, Object> userMetadata,
+        Boolean blocked,
+        List<String> searchTerms,
+        Instant syncedAt
+) {
+    /**
+     * Creates a new entry with the search terms derived from its email, name and nickname.
+     *
+     * @return A new entry with the search terms set
+     */
+    public UserDirectoryEntry withSearchTerms() {
+        List<String> searchTerms = Stream.of(email, name, nickname)
+                .filter(Objects::nonNull)
+                .map(term -> term.toLowerCase(Locale.ROOT))
+                .distinct()
+                .toList();
+        return new UserDirectoryEntry(
+                id,
+                username,
+                email,
+                phoneNumber,
+                picture,
+                name,
+                nickname,
+                givenName,
+                familyName,
+                createdAt,
+                updatedAt,
+                appMetadata,
+                userMetadata,
+                blocked,
+                searchTerms,
+                syncedAt
+        );
+    }
+
+    /**
+     * Creates a new entry with the given sync time.
+     *
+     * @param syncedAt The time the entry was copied from Auth0
+     * @return A new entry with the given sync time
+     */
+    public UserDirectoryEntry withSyncedAt(Instant syncedAt) {
+        return new UserDirectoryEntry(
+                id,
+                username,
+                email,
+                phoneNumber,
+                picture,
+                name,
+                nickname,
+                givenName,
+                familyName,
+                createdAt,
+                updatedAt,
+                appMetadata,
+                userMetadata,
+                blocked,
+                searchTerms,
+                syncedAt
+        );
+    }
+}
@@ -0,0 +1,17 @@
+package com.tokorokoshi.tokoro.database;
+
+import com.mongodb.lang.NonNull;
+
+import java.util.Date;
+
+/**
+ * Represents an entry of the history of a user in the database.
+ */
+public record UserHistoryEntry(
+        @NonNull
+        String action,
+        @NonNull
+        String establishmentId,
+        Date timestamp
+) {
+}
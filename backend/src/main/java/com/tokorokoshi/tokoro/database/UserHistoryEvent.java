@@ -0,0 +1,26 @@
+package com.tokorokoshi.tokoro.database;
+
+import com.mongodb.lang.NonNull;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Represents an entry of the history of a user in the database,
+ * one document per entry.
+ */
+@Document(collection = "user_history")
+public record UserHistoryEvent(
+        @Id
+        String id,
+        @NonNull
+        String userId,
+        @NonNull
+        String action,
+        @NonNull
+        String establishmentId,
+        @NonNull
+        Date timestamp
+) {
+}
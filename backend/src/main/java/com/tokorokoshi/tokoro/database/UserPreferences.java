@@ -0,0 +1,14 @@
+package com.tokorokoshi.tokoro.database;
+
+import java.util.List;
+
+/**
+ * Represents the preferences of a user in the database.
+ */
+public record UserPreferences(
+        String language,
+        List<String> categories,
+        String timezone,
+        boolean notificationsEnabled
+) {
+}
@@ -0,0 +1,32 @@
+package com.tokorokoshi.tokoro.database;
+
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Represents the application data of a user in the database,
+ * one document per user, keyed by the Auth0 user ID.
+ * <p>
+ * The {@code collections} and {@code history} fields are only set on profiles migrated
+ * before they got their own collections ({@link FavoriteCollection} and {@link UserHistoryEvent});
+ * they are moved there on first access.
+ * </p>
+ */
+@Document(collection = "user_profile")
+public record UserProfile(
+        @Id
+        String id,
+        UserPreferences preferences,
+        List<UserCollection> collections,
+        List<UserHistoryEntry> history,
+        @CreatedDate
+        Instant createdAt,
+        @LastModifiedDate
+        Instant updatedAt
+) {
+}
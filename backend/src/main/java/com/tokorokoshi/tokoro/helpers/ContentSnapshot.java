@@ -0,0 +1,115 @@
+package com.tokorokoshi.tokoro.helpers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * In-memory snapshot of content that rarely changes, so reading it needs no database query.
+ * <p>
+ * The snapshot is rebuilt as a whole and replaced atomically, so readers always see a complete version.
+ * Each version carries an entity tag derived from its content and the time its content last changed,
+ * so clients can revalidate it with a conditional request.
+ * Refreshes requested while one is running are folded into a single follow-up refresh.
+ * </p>
+ *
+ * @param <T> the content type
+ */
+public class ContentSnapshot<T> {
+    private final Supplier<T> loader;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final AtomicBoolean refreshRequested = new AtomicBoolean();
+
+    private volatile Version<T> version;
+
+    /**
+     * A version of the content.
+     *
+     * @param content      the content, null if there is none
+     * @param eTag         the entity tag of the content
+     * @param lastModified when the content last changed, truncated to seconds like the {@code Last-Modified} header
+     * @param <T>          the content type
+     */
+    public record Version<T>(T content, String eTag, Instant lastModified) {
+    }
+
+    /**
+     * Creates an empty snapshot.
+     *
+     * @param loader loads the content, returning null if there is none
+     */
+    public ContentSnapshot(Supplier<T> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Reloads the content, or has the refresh that is running reload it once more.
+     *
+     * @throws RuntimeException if the loader fails
+     */
+    public void refresh() {
+        refreshRequested.set(true);
+        while (refreshRequested.get() && refreshLock.tryLock()) {
+            try {
+                while (refreshRequested.getAndSet(false)) {
+                    version = load();
+                }
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the current version, loading it first if it was never loaded.
+     *
+     * @return the current version
+     * @throws RuntimeException if the content has to be loaded and the loader fails
+     */
+    public Version<T> get() {
+        Version<T> current = version;
+        if (current != null) {
+            return current;
+        }
+
+        refreshLock.lock();
+        try {
+            if (version == null) {
+                version = load();
+            }
+            return version;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Loads the content, keeping the last modification time if the content did not change.
+     */
+    private Version<T> load() {
+        T content = loader.get();
+        String eTag = eTag(content);
+        Version<T> previous = version;
+        if (previous != null && previous.eTag().equals(eTag)) {
+            return previous;
+        }
+        return new Version<>(content, eTag, Instant.now().truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    private static String eTag(Object content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(Objects.toString(content).getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
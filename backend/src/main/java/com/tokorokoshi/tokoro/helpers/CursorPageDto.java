@@ -0,0 +1,35 @@
+package com.tokorokoshi.tokoro.helpers;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * A DTO for keyset pagination.
+ *
+ * @param <T> The type of the payload
+ */
+@Schema(
+        name = "CursorPage",
+        description = "A DTO for keyset pagination"
+)
+public record CursorPageDto<T>(
+        @Schema(
+                name = "payload",
+                description = "The items of the page"
+        )
+        List<T> payload,
+
+        @Schema(
+                name = "next",
+                description = "The cursor of the next page, or null if this is the last page"
+        )
+        String next,
+
+        @Schema(
+                name = "total",
+                description = "The total number of items across all pages"
+        )
+        long total
+) {
+}
@@ -0,0 +1,175 @@
+package com.tokorokoshi.tokoro.helpers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-memory pool of candidates to draw random samples from, so random picks need no database query.
+ * <p>
+ * The pool is loaded as a whole and replaced atomically, so readers always see a complete pool.
+ * Refreshes requested while one is running, or while a draw reloads the pool,
+ * are folded into a single follow-up refresh.
+ * </p>
+ * <p>
+ * A pool may have a maximum age, for candidates that go stale, such as signed URLs.
+ * If the refreshes keep failing until the pool is older than that, the next draw reloads it,
+ * and fails if the reload fails, rather than handing out stale candidates.
+ * </p>
+ *
+ * @param <T> the candidate type
+ */
+public class RandomPool<T> {
+    private static final Logger log = LoggerFactory.getLogger(RandomPool.class);
+
+    private final Supplier<List<T>> loader;
+    private final long maxAgeNanos;
+    private final LongSupplier nanoTime;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final AtomicBoolean refreshRequested = new AtomicBoolean();
+
+    private volatile Candidates<T> candidates;
+
+    /**
+     * Loaded candidates.
+     *
+     * @param items    the candidates
+     * @param loadedAt when they were loaded, in nanoseconds of the pool clock
+     */
+    private record Candidates<T>(List<T> items, long loadedAt) {
+    }
+
+    /**
+     * Creates an empty pool whose candidates never go stale.
+     *
+     * @param loader loads the candidates
+     */
+    public RandomPool(Supplier<List<T>> loader) {
+        this(loader, Long.MAX_VALUE, System::nanoTime);
+    }
+
+    /**
+     * Creates an empty pool whose candidates go stale after a maximum age.
+     *
+     * @param loader loads the candidates
+     * @param maxAge how long the candidates may be drawn from after they were loaded
+     */
+    public RandomPool(Supplier<List<T>> loader, Duration maxAge) {
+        this(loader, maxAge.toNanos(), System::nanoTime);
+    }
+
+    /**
+     * Creates an empty pool that reads the time from the given clock.
+     *
+     * @param loader      loads the candidates
+     * @param maxAgeNanos how long the candidates may be drawn from after they were loaded
+     * @param nanoTime    the clock, in nanoseconds
+     */
+    RandomPool(Supplier<List<T>> loader, long maxAgeNanos, LongSupplier nanoTime) {
+        this.loader = loader;
+        this.maxAgeNanos = maxAgeNanos;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Reloads the candidates, or has the refresh that is running reload them once more.
+     *
+     * @throws RuntimeException if the loader fails
+     */
+    public void refresh() {
+        refreshRequested.set(true);
+        runRequestedRefreshes();
+    }
+
+    /**
+     * Runs the requested refreshes, unless the thread holding the lock is left to run them.
+     *
+     * @throws RuntimeException if the loader fails
+     */
+    private void runRequestedRefreshes() {
+        while (refreshRequested.get() && refreshLock.tryLock()) {
+            try {
+                while (refreshRequested.getAndSet(false)) {
+                    candidates = load();
+                }
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Draws distinct random candidates, loading the pool first if it was never loaded or is stale.
+     * Takes time proportional to the sample, not to the pool.
+     *
+     * @param count number of candidates to draw
+     * @return the candidates in random order, fewer if the pool is smaller
+     * @throws RuntimeException if the pool has to be loaded and the loader fails
+     */
+    public List<T> sample(int count) {
+        List<T> pool = getCandidates();
+        int size = Math.min(Math.max(count, 0), pool.size());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        // Floyd's algorithm picks distinct indexes with one draw each
+        Set<Integer> indexes = new HashSet<>();
+        for (int bound = pool.size() - size; bound < pool.size(); bound++) {
+            int index = random.nextInt(bound + 1);
+            indexes.add(indexes.contains(index) ? bound : index);
+        }
+
+        List<T> sample = new ArrayList<>(size);
+        indexes.forEach(index -> sample.add(pool.get(index)));
+        Collections.shuffle(sample, random);
+        return sample;
+    }
+
+    private List<T> getCandidates() {
+        Candidates<T> pool = candidates;
+        if (pool != null && !isStale(pool)) {
+            return pool.items();
+        }
+
+        refreshLock.lock();
+        try {
+            pool = candidates;
+            if (pool == null || isStale(pool)) {
+                // This load also serves the refreshes requested before it started
+                refreshRequested.set(false);
+                pool = load();
+                candidates = pool;
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+
+        // The refreshes requested while the lock was held could not take it and were left to this draw
+        if (refreshRequested.get()) {
+            try {
+                runRequestedRefreshes();
+            } catch (RuntimeException e) {
+                log.warn("Failed to refresh the random pool, keeping the candidates just loaded", e);
+            }
+        }
+        return pool.items();
+    }
+
+    private Candidates<T> load() {
+        return new Candidates<>(List.copyOf(loader.get()), nanoTime.getAsLong());
+    }
+
+    private boolean isStale(Candidates<T> pool) {
+        return nanoTime.getAsLong() - pool.loadedAt() > maxAgeNanos;
+    }
+}
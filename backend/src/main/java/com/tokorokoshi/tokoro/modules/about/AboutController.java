@@ -1,5 +1,6 @@
 package com.tokorokoshi.tokoro.modules.about;
 
+import com.tokorokoshi.tokoro.helpers.ContentSnapshot;
 import com.tokorokoshi.tokoro.modules.about.dto.AboutDto;
 import com.tokorokoshi.tokoro.modules.about.dto.CreateUpdateAboutDto;
 import com.tokorokoshi.tokoro.modules.error.NotFoundException;
@@ -30,17 +31,21 @@ public class AboutController {
 
     /**
      * Retrieves the About information.
+     * Answers a conditional request for an unchanged version with 304 Not Modified.
      *
      * @return the About information
      */
     @GetMapping
     @Operation(summary = "Get About Information")
     public ResponseEntity<AboutDto> getAbout() {
-        AboutDto aboutDto = aboutService.getAbout();
-        if (aboutDto == null) {
+        ContentSnapshot.Version<AboutDto> about = aboutService.getAboutSnapshot();
+        if (about.content() == null) {
             throw new NotFoundException("About information not found");
         }
-        return ResponseEntity.ok(aboutDto);
+        return ResponseEntity.ok()
+                .eTag(about.eTag())
+                .lastModified(about.lastModified())
+                .body(about.content());
     }
 
     @Operation(
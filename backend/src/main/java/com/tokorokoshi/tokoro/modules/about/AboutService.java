@@ -1,23 +1,44 @@
 package com.tokorokoshi.tokoro.modules.about;
 
 import com.tokorokoshi.tokoro.database.About;
+import com.tokorokoshi.tokoro.helpers.ContentSnapshot;
 import com.tokorokoshi.tokoro.modules.about.dto.AboutDto;
 import com.tokorokoshi.tokoro.modules.about.dto.CreateUpdateAboutDto;
 import com.tokorokoshi.tokoro.modules.file.FileStorageService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.Optional;
 
+/**
+ * Service class for the About information.
+ * <p>
+ * The About information is served from an in-memory snapshot, rebuilt after every write of this instance
+ * and every {@code content-snapshot.refresh-interval-ms}, which also renews the signed logo URL
+ * well before it expires. The bean is created eagerly, so the snapshot is loaded at startup.
+ * </p>
+ */
 @Service
+@Lazy(false)
 public class AboutService {
+    private static final Logger log = LoggerFactory.getLogger(AboutService.class);
 
     private final MongoTemplate repository;
     private final AboutMapper aboutMapper;
     private final FileStorageService fileStorageService;
+    private final ContentSnapshot<AboutDto> snapshot = new ContentSnapshot<>(this::loadAbout);
+
+    @Value("${content-snapshot.url-ttl-seconds}")
+    private int urlTtlSeconds;
 
     @Autowired
     public AboutService(
@@ -38,6 +59,38 @@ public class AboutService {
         return aboutMapper.toAboutDto(about.withLogo(logoUrl));
     }
 
+    /**
+     * Get about with a logo URL that expires after the given time.
+     */
+    private AboutDto getAboutWithLogoUrl(About about, int expirationSeconds) {
+        String logoUrl = fileStorageService.generateSignedUrl(about.logo(), expirationSeconds).join();
+        return aboutMapper.toAboutDto(about.withLogo(logoUrl));
+    }
+
+    /**
+     * Loads the About document for the snapshot, signing its logo for {@code content-snapshot.url-ttl-seconds}.
+     */
+    private AboutDto loadAbout() {
+        About about = repository.findOne(new Query(), About.class);
+        return about == null ? null : getAboutWithLogoUrl(about, urlTtlSeconds);
+    }
+
+    /**
+     * Rebuilds the About snapshot, keeping the current one if that fails.
+     */
+    @PostConstruct
+    @Scheduled(
+            initialDelayString = "${content-snapshot.refresh-interval-ms}",
+            fixedDelayString = "${content-snapshot.refresh-interval-ms}"
+    )
+    public void refreshSnapshot() {
+        try {
+            snapshot.refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh the About snapshot", e);
+        }
+    }
+
     /**
      * Validates the file to be an image.
      *
@@ -58,8 +111,16 @@ public class AboutService {
      * @return the About document
      */
     public AboutDto getAbout() {
-        Optional<About> aboutOptional = Optional.ofNullable(repository.findOne(new Query(), About.class));
-        return aboutOptional.map(this::getAboutWithLogoUrl).orElse(null);
+        return snapshot.get().content();
+    }
+
+    /**
+     * Retrieves the current version of the About snapshot, to serve it with conditional request headers.
+     *
+     * @return the current version, whose content is null if there is no About document
+     */
+    public ContentSnapshot.Version<AboutDto> getAboutSnapshot() {
+        return snapshot.get();
     }
 
     /**
@@ -83,6 +144,7 @@ public class AboutService {
 
         // Save to MongoDB
         About savedAbout = repository.save(about);
+        refreshSnapshot();
         return getAboutWithLogoUrl(savedAbout);
     }
 
@@ -120,6 +182,7 @@ public class AboutService {
 
         // Save to MongoDB
         About savedAbout = repository.save(about);
+        refreshSnapshot();
         return getAboutWithLogoUrl(savedAbout);
     }
 
@@ -135,6 +198,7 @@ public class AboutService {
                 fileStorageService.deleteFile(about.logo()).join();
             }
             repository.remove(about);
+            refreshSnapshot();
         } else {
             throw new IllegalArgumentException("About document not found");
         }
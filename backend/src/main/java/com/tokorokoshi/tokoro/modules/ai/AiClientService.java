@@ -1,6 +1,7 @@
 package com.tokorokoshi.tokoro.modules.ai;
 
 import com.tokorokoshi.tokoro.helpers.Response;
+import com.tokorokoshi.tokoro.modules.exceptions.ai.AiRateLimitExceededException;
 import jakarta.annotation.Nullable;
 import org.springframework.ai.moderation.Moderation;
 import org.springframework.ai.moderation.ModerationResult;
@@ -21,6 +22,8 @@ public interface AiClientService {
      * @param temperature    temperature (check language model documentation)
      * @return response from AI model
      * @throws IllegalStateException if prompt is null
+     * @throws IllegalArgumentException if the prompt exceeds the input token budget
+     * @throws AiRateLimitExceededException if the call is rejected by the rate limiter
      */
     String getResponse(
         String prompt,
@@ -42,6 +45,7 @@ public interface AiClientService {
      * @param <T>            structured response type
      * @return Response from AI model, which can be successful and contain a generated item,
      * or unsuccessful and contain a string refusal reason
+     * @throws AiRateLimitExceededException if the call is rejected by the rate limiter
      */
     <T> Response<T> getResponse(
         String prompt,
@@ -62,6 +66,8 @@ public interface AiClientService {
      * @param temperature    temperature (check language model documentation)
      * @return Response from AI model, which can be successful and contain a generated item,
      * or unsuccessful and contain a string refusal reason
+     * @throws IllegalArgumentException if the prompt exceeds the input token budget
+     * @throws AiRateLimitExceededException if the call is rejected by the rate limiter
      */
     String getResponse(
         List<Message> messages,
@@ -83,6 +89,7 @@ public interface AiClientService {
      * @param <T>            structured response type
      * @return Response from AI model, which can be successful and contain a generated item,
      * or unsuccessful and contain a string refusal reason
+     * @throws AiRateLimitExceededException if the call is rejected by the rate limiter
      */
     <T> Response<T> getResponse(
         List<Message> messages,
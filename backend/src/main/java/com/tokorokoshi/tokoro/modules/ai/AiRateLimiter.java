@@ -0,0 +1,252 @@
+package com.tokorokoshi.tokoro.modules.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tokorokoshi.tokoro.modules.exceptions.ai.AiRateLimitExceededException;
+import com.tokorokoshi.tokoro.security.SecurityUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Rate limiter for calls to the AI provider.
+ * <p>
+ * Every call takes one permit from the caller's own request bucket, then one request
+ * and its estimated tokens from the global buckets. A user over their own limit is
+ * rejected at once. When the global buckets are empty, the call waits in a bounded
+ * queue; it is rejected if the queue is full or the wait would exceed the maximum,
+ * and its user permit is given back, since the call was never sent.
+ * </p>
+ * <p>
+ * Waiting calls are served in arrival order: a new call never takes the global permits
+ * while another one is waiting for them.
+ * </p>
+ */
+@Component
+public class AiRateLimiter {
+    private static final Logger log = LoggerFactory.getLogger(AiRateLimiter.class);
+
+    private final TokenBucket globalRequests;
+    private final TokenBucket globalTokens;
+    private final Cache<String, TokenBucket> userRequests;
+    private final long userRequestsPerMinute;
+    private final long maxWaitNanos;
+    private final int maxQueueSize;
+
+    /**
+     * Guards the global buckets and the queue. A lock rather than a monitor,
+     * so waiting calls do not pin the carriers of virtual threads.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final ArrayDeque<Object> queue = new ArrayDeque<>();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final Timer waitTimer;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Told of every call given the global permits, with the lock held, so in the order they are given.
+     */
+    private final LongConsumer grantListener;
+
+    @Autowired
+    public AiRateLimiter(
+            @Value("${ai.rate-limit.requests-per-minute}") long requestsPerMinute,
+            @Value("${ai.rate-limit.tokens-per-minute}") long tokensPerMinute,
+            @Value("${ai.rate-limit.user-requests-per-minute}") long userRequestsPerMinute,
+            @Value("${ai.rate-limit.max-queue-size}") int maxQueueSize,
+            @Value("${ai.rate-limit.max-wait-ms}") long maxWaitMs,
+            MeterRegistry meterRegistry
+    ) {
+        this(
+                requestsPerMinute,
+                tokensPerMinute,
+                userRequestsPerMinute,
+                maxQueueSize,
+                maxWaitMs,
+                meterRegistry,
+                tokens -> {
+                }
+        );
+    }
+
+    /**
+     * Creates a limiter that reports the calls it lets through.
+     *
+     * @param grantListener told of the estimated tokens of every call given the global permits
+     */
+    AiRateLimiter(
+            long requestsPerMinute,
+            long tokensPerMinute,
+            long userRequestsPerMinute,
+            int maxQueueSize,
+            long maxWaitMs,
+            MeterRegistry meterRegistry,
+            LongConsumer grantListener
+    ) {
+        this.grantListener = grantListener;
+        this.globalRequests = new TokenBucket(requestsPerMinute);
+        this.globalTokens = new TokenBucket(tokensPerMinute);
+        this.userRequests = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(1))
+                .build();
+        this.userRequestsPerMinute = userRequestsPerMinute;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.maxQueueSize = maxQueueSize;
+        this.meterRegistry = meterRegistry;
+
+        meterRegistry.gauge("ai.rate-limit.queue.depth", queueDepth);
+        this.waitTimer = Timer.builder("ai.rate-limit.wait")
+                .description("Time AI calls spend waiting for the rate limiter")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Waits until a call may be sent to the AI provider.
+     *
+     * @param tokens estimated tokens of the call (input and maximum output)
+     * @throws AiRateLimitExceededException if the call is over the user limit,
+     *                                      the queue is full or the wait is too long
+     */
+    public void acquire(long tokens) {
+        Optional<TokenBucket> userBucket = SecurityUtils.findAuthenticatedUserId()
+                .map(this::acquireUserPermit);
+
+        long start = System.nanoTime();
+        try {
+            acquireGlobalPermits(tokens);
+        } catch (RuntimeException e) {
+            // The call is not sent, so it does not count against the user
+            userBucket.ifPresent(bucket -> {
+                synchronized (bucket) {
+                    bucket.refund(1);
+                }
+            });
+            throw e;
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Takes a request permit from the user's bucket, without waiting.
+     *
+     * @param userId ID of the user
+     * @return the user's bucket, to give the permit back to if the call is not sent
+     */
+    private TokenBucket acquireUserPermit(String userId) {
+        TokenBucket bucket = userRequests.get(
+                userId,
+                id -> new TokenBucket(userRequestsPerMinute)
+        );
+        synchronized (bucket) {
+            if (bucket.nanosUntilAvailable(1) > 0) {
+                reject("user", "AI request limit reached for user " + userId);
+            }
+            bucket.consume(1);
+        }
+        return bucket;
+    }
+
+    /**
+     * Takes a request and the tokens from the global buckets,
+     * waiting in the queue, in arrival order, while they are empty or other calls are waiting.
+     *
+     * @param tokens estimated tokens of the call
+     */
+    private void acquireGlobalPermits(long tokens) {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        lock.lock();
+        try {
+            if (queue.isEmpty() && getGlobalWait(tokens) == 0) {
+                consumeGlobalPermits(tokens);
+                return;
+            }
+            if (queue.size() >= maxQueueSize) {
+                reject("queue", "AI request queue is full");
+            }
+
+            Object ticket = new Object();
+            queue.addLast(ticket);
+            queueDepth.incrementAndGet();
+            try {
+                while (true) {
+                    long wait = deadline - System.nanoTime();
+                    if (queue.peekFirst() == ticket) {
+                        long delay = getGlobalWait(tokens);
+                        if (delay == 0) {
+                            consumeGlobalPermits(tokens);
+                            return;
+                        }
+                        if (delay > wait) {
+                            reject("timeout", "AI request would wait too long");
+                        }
+                        wait = delay;
+                    } else if (wait <= 0) {
+                        reject("timeout", "AI request would wait too long");
+                    }
+                    changed.awaitNanos(wait);
+                }
+            } finally {
+                // Let the next call in line check the buckets
+                queue.remove(ticket);
+                queueDepth.decrementAndGet();
+                changed.signalAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AiRateLimitExceededException("Interrupted while waiting for the AI rate limiter");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Works out how long a call has to wait for the global buckets. Must be called with the lock held.
+     *
+     * @param tokens estimated tokens of the call
+     * @return the wait in nanoseconds, 0 if the call may be sent now
+     */
+    private long getGlobalWait(long tokens) {
+        return Math.max(
+                globalRequests.nanosUntilAvailable(1),
+                globalTokens.nanosUntilAvailable(tokens)
+        );
+    }
+
+    /**
+     * Takes a request and the tokens from the global buckets. Must be called with the lock held.
+     *
+     * @param tokens estimated tokens of the call
+     */
+    private void consumeGlobalPermits(long tokens) {
+        globalRequests.consume(1);
+        globalTokens.consume(tokens);
+        grantListener.accept(tokens);
+    }
+
+    /**
+     * Counts a rejected call and fails it.
+     *
+     * @param reason  reason of the rejection, used to tag the metric
+     * @param message message of the exception
+     */
+    private void reject(String reason, String message) {
+        log.debug("Rejecting AI call: {}", message);
+        meterRegistry.counter("ai.rate-limit.rejected", "reason", reason).increment();
+        throw new AiRateLimitExceededException(message);
+    }
+}
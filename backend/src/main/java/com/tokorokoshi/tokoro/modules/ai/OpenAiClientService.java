@@ -1,12 +1,21 @@
 package com.tokorokoshi.tokoro.modules.ai;
 
+import com.tokorokoshi.tokoro.configuration.BulkheadConfiguration;
 import com.tokorokoshi.tokoro.helpers.Response;
-import com.tokorokoshi.tokoro.modules.json.JsonHelper;
+import com.tokorokoshi.tokoro.modules.bulkhead.Bulkhead;
+import com.tokorokoshi.tokoro.modules.exceptions.bulkhead.BulkheadFullException;
+import com.tokorokoshi.tokoro.modules.json.JsonSchemaRegistry;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.MessageType;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
@@ -17,25 +26,178 @@ import org.springframework.ai.moderation.Moderation;
 import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.ai.openai.api.ResponseFormat;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class OpenAiClientService implements AiClientService {
+    private static final Logger log = LoggerFactory.getLogger(OpenAiClientService.class);
+    private static final String TEXT_CALL_SITE = "text";
+
     private final ChatModel chatClient;
     private final ModerationModel moderationModel;
+    private final JsonSchemaRegistry jsonSchemaRegistry;
+    private final TokenCounter tokenCounter;
+    private final MeterRegistry meterRegistry;
+    private final AiRateLimiter rateLimiter;
+    private final Bulkhead bulkhead;
+    private final Map<SchemaModel, Integer> schemaTokenCounts = new ConcurrentHashMap<>();
+
+    @Value("${ai.max-input-tokens}")
+    private int maxInputTokens;
+
+    /**
+     * A response schema as sent to a model, whose tokens are counted with the encoding of the model.
+     *
+     * @param type  the response type of the schema
+     * @param model the model name, null for the default model
+     */
+    private record SchemaModel(Class<?> type, String model) {
+    }
 
     @Autowired
     public OpenAiClientService(
         ChatModel chatClient,
-        ModerationModel moderationModel
+        ModerationModel moderationModel,
+        JsonSchemaRegistry jsonSchemaRegistry,
+        TokenCounter tokenCounter,
+        MeterRegistry meterRegistry,
+        AiRateLimiter rateLimiter,
+        @Qualifier(BulkheadConfiguration.AI_BULKHEAD) Bulkhead bulkhead
     ) {
         this.chatClient = chatClient;
         this.moderationModel = moderationModel;
+        this.jsonSchemaRegistry = jsonSchemaRegistry;
+        this.tokenCounter = tokenCounter;
+        this.meterRegistry = meterRegistry;
+        this.rateLimiter = rateLimiter;
+        this.bulkhead = bulkhead;
+    }
+
+    /**
+     * Get the number of tokens of the JSON schema of a response type, counting them once per model.
+     *
+     * @param responseType Type of the response
+     * @param model        OpenAI Text model
+     * @return the number of tokens of the JSON schema
+     */
+    private int getSchemaTokenCount(Class<?> responseType, @Nullable String model) {
+        return this.schemaTokenCounts.computeIfAbsent(
+            new SchemaModel(responseType, model),
+            key -> this.tokenCounter.countTokens(
+                this.jsonSchemaRegistry.getSchema(key.type()),
+                key.model()
+            )
+        );
+    }
+
+    /**
+     * Measures the input tokens of a prompt.
+     *
+     * @param messages   Messages of the prompt
+     * @param schemaTokens Number of tokens of the JSON schema of the response, sent along with the prompt
+     * @param model      OpenAI Text model
+     * @param callSite   Name of the call site, used to tag the metrics
+     * @return the number of input tokens
+     */
+    private int countInputTokens(
+        List<Message> messages,
+        int schemaTokens,
+        @Nullable String model,
+        String callSite
+    ) {
+        int inputTokens = this.tokenCounter.countTokens(messages, model) + schemaTokens;
+        DistributionSummary
+            .builder("ai.tokens.estimated")
+            .description("Locally counted input tokens of AI prompts")
+            .tags(getTags(model, callSite))
+            .register(this.meterRegistry)
+            .record(inputTokens);
+        return inputTokens;
+    }
+
+    /**
+     * Checks the input tokens of a prompt against the budget.
+     *
+     * @param inputTokens Number of input tokens of the prompt
+     * @param model       OpenAI Text model
+     * @param callSite    Name of the call site, used to tag the metrics
+     * @return true if the prompt exceeds the input token budget
+     */
+    private boolean exceedsInputBudget(
+        int inputTokens,
+        @Nullable String model,
+        String callSite
+    ) {
+        if (inputTokens <= this.maxInputTokens) {
+            return false;
+        }
+        log.warn(
+            "Dropping {} prompt of {} tokens, the budget is {}",
+            callSite,
+            inputTokens,
+            this.maxInputTokens
+        );
+        this.meterRegistry
+            .counter("ai.prompts.rejected", getTags(model, callSite))
+            .increment();
+        return true;
+    }
+
+    /**
+     * Records the token usage reported by the API.
+     *
+     * @param chatResponse Response of the API
+     * @param model        OpenAI Text model
+     * @param callSite     Name of the call site, used to tag the metrics
+     */
+    private void recordUsage(
+        ChatResponse chatResponse,
+        @Nullable String model,
+        String callSite
+    ) {
+        Usage usage = chatResponse.getMetadata().getUsage();
+        if (usage == null) {
+            return;
+        }
+        if (usage.getPromptTokens() != null) {
+            DistributionSummary
+                .builder("ai.tokens.input")
+                .description("Input tokens of AI calls, as billed")
+                .tags(getTags(model, callSite))
+                .register(this.meterRegistry)
+                .record(usage.getPromptTokens());
+        }
+        if (usage.getGenerationTokens() != null) {
+            DistributionSummary
+                .builder("ai.tokens.output")
+                .description("Output tokens of AI calls, as billed")
+                .tags(getTags(model, callSite))
+                .register(this.meterRegistry)
+                .record(usage.getGenerationTokens());
+        }
+    }
+
+    /**
+     * Builds the metric tags of an AI call.
+     *
+     * @param model    OpenAI Text model
+     * @param callSite Name of the call site
+     * @return Metric tags
+     */
+    private static Tags getTags(@Nullable String model, String callSite) {
+        return Tags.of(
+            "model", model != null ? model : "default",
+            "call.site", callSite
+        );
     }
 
     /**
@@ -189,8 +351,22 @@ public class OpenAiClientService implements AiClientService {
         @Nullable Integer maxTokens,
         @Nullable Double temperature
     ) {
+        // Drop oversized prompts before they reach the API
+        int inputTokens = countInputTokens(
+            Objects.requireNonNull(messages),
+            0,
+            model,
+            TEXT_CALL_SITE
+        );
+        if (exceedsInputBudget(inputTokens, model, TEXT_CALL_SITE)) {
+            throw new IllegalArgumentException(
+                "Prompt exceeds the input token budget"
+            );
+        }
+        this.rateLimiter.acquire(inputTokens + (maxTokens != null ? maxTokens : 0));
+
         Prompt chatPrompt = new Prompt(
-            OpenAiClientService.mapMessages(Objects.requireNonNull(messages)),
+            OpenAiClientService.mapMessages(messages),
             OpenAiClientService.getOptions(
                 null,
                 conversationId,
@@ -201,11 +377,16 @@ public class OpenAiClientService implements AiClientService {
         );
 
         try {
-            return this.chatClient
-                .call(chatPrompt)
+            ChatResponse chatResponse = this.bulkhead.execute(
+                () -> this.chatClient.call(chatPrompt)
+            );
+            recordUsage(chatResponse, model, TEXT_CALL_SITE);
+            return chatResponse
                 .getResult()
                 .getOutput()
                 .getContent();
+        } catch (BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
             String[] components = e.getMessage().split(" - ");
             return components.length > 1 ? components[1] : components[0];
@@ -221,11 +402,28 @@ public class OpenAiClientService implements AiClientService {
         @Nullable Integer maxTokens,
         @Nullable Double temperature
     ) {
+        // Drop oversized prompts before they reach the API
+        String callSite = Objects.requireNonNull(responseType).getSimpleName();
+        String jsonSchema = this.jsonSchemaRegistry.getSchema(responseType);
+        int inputTokens = countInputTokens(
+            Objects.requireNonNull(messages),
+            getSchemaTokenCount(responseType, model),
+            model,
+            callSite
+        );
+        if (exceedsInputBudget(inputTokens, model, callSite)) {
+            return Response.<T>builder()
+                           .conversationId(conversationId)
+                           .refusal("Prompt exceeds the input token budget")
+                           .refusalStatus(HttpStatus.PAYLOAD_TOO_LARGE.value())
+                           .build();
+        }
+        this.rateLimiter.acquire(inputTokens + (maxTokens != null ? maxTokens : 0));
+
         Prompt prompt = new Prompt(
-            OpenAiClientService.mapMessages(Objects.requireNonNull(messages)),
+            OpenAiClientService.mapMessages(messages),
             OpenAiClientService.getOptions(
-                JsonHelper.
-                    getJsonSchema(Objects.requireNonNull(responseType)),
+                jsonSchema,
                 conversationId,
                 model,
                 maxTokens,
@@ -233,7 +431,10 @@ public class OpenAiClientService implements AiClientService {
             )
         );
         try {
-            ChatResponse chatResponse = this.chatClient.call(prompt);
+            ChatResponse chatResponse = this.bulkhead.execute(
+                () -> this.chatClient.call(prompt)
+            );
+            recordUsage(chatResponse, model, callSite);
             String strResponse = chatResponse
                 .getResult()
                 .getOutput()
@@ -241,11 +442,13 @@ public class OpenAiClientService implements AiClientService {
 
             return Response.<T>builder()
                            .conversationId(conversationId)
-                           .content(JsonHelper.fromJson(
+                           .content(this.jsonSchemaRegistry.fromJson(
                                strResponse,
                                responseType
                            ))
                            .build();
+        } catch (BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
             String[] components = e.getMessage().split(" - ");
             return Response.<T>builder()
@@ -273,8 +476,8 @@ public class OpenAiClientService implements AiClientService {
             message,
             moderationOptions
         );
-        return this.moderationModel
-            .call(moderationPrompt)
+        return this.bulkhead
+            .execute(() -> this.moderationModel.call(moderationPrompt))
             .getResult()
             .getOutput();
     }
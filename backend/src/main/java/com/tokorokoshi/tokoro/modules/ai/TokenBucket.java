@@ -0,0 +1,78 @@
+package com.tokorokoshi.tokoro.modules.ai;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket that refills continuously up to its capacity.
+ * Not thread-safe; callers synchronize access.
+ */
+class TokenBucket {
+    private final double capacity;
+    private final double refillPerNano;
+    private final LongSupplier nanoTime;
+    private double available;
+    private long lastRefill;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param perMinute number of permits refilled per minute, also the capacity
+     */
+    TokenBucket(long perMinute) {
+        this(perMinute, System::nanoTime);
+    }
+
+    /**
+     * Creates a full bucket that reads the time from the given clock.
+     *
+     * @param perMinute number of permits refilled per minute, also the capacity
+     * @param nanoTime  the clock, in nanoseconds
+     */
+    TokenBucket(long perMinute, LongSupplier nanoTime) {
+        this.capacity = perMinute;
+        this.refillPerNano = perMinute / 60_000_000_000d;
+        this.nanoTime = nanoTime;
+        this.available = perMinute;
+        this.lastRefill = nanoTime.getAsLong();
+    }
+
+    /**
+     * Adds the permits refilled since the last call.
+     */
+    private void refill() {
+        long now = nanoTime.getAsLong();
+        available = Math.min(capacity, available + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+    }
+
+    /**
+     * Computes how long to wait until the permits are available.
+     * Requests larger than the capacity are treated as a full bucket.
+     *
+     * @param permits number of permits
+     * @return the wait in nanoseconds, 0 if the permits are available now
+     */
+    long nanosUntilAvailable(long permits) {
+        refill();
+        double missing = Math.min(permits, capacity) - available;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing / refillPerNano);
+    }
+
+    /**
+     * Takes permits; the caller checks {@link #nanosUntilAvailable(long)} first.
+     *
+     * @param permits number of permits
+     */
+    void consume(long permits) {
+        available -= Math.min(permits, capacity);
+    }
+
+    /**
+     * Gives back permits that were taken but not used.
+     *
+     * @param permits number of permits
+     */
+    void refund(long permits) {
+        available = Math.min(capacity, available + Math.min(permits, capacity));
+    }
+}
@@ -0,0 +1,84 @@
+package com.tokorokoshi.tokoro.modules.ai;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingResult;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Counts the tokens of prompts locally with the BPE encoding of the model,
+ * so prompt sizes are known before anything is sent to the API.
+ */
+@Component
+public class TokenCounter {
+    /**
+     * Tokens added by the chat format to every message (role and separators).
+     */
+    private static final int TOKENS_PER_MESSAGE = 3;
+
+    /**
+     * Tokens the chat format adds to prime the assistant reply.
+     */
+    private static final int TOKENS_PER_REPLY = 3;
+
+    private final EncodingRegistry registry = Encodings.newLazyEncodingRegistry();
+
+    /**
+     * Get the encoding of a model, falling back to the one of the current OpenAI models.
+     *
+     * @param model model name, may be null
+     * @return the encoding
+     */
+    private Encoding getEncoding(String model) {
+        if (model == null) {
+            return registry.getEncoding(EncodingType.O200K_BASE);
+        }
+        return registry.getEncodingForModel(model)
+                .orElseGet(() -> registry.getEncoding(EncodingType.O200K_BASE));
+    }
+
+    /**
+     * Counts the tokens of a text.
+     *
+     * @param text  text to count
+     * @param model model the text is sent to, may be null
+     * @return the number of tokens
+     */
+    public int countTokens(String text, String model) {
+        return getEncoding(model).countTokensOrdinary(text);
+    }
+
+    /**
+     * Counts the input tokens of a chat prompt, including the chat format overhead.
+     *
+     * @param messages messages of the prompt
+     * @param model    model the prompt is sent to, may be null
+     * @return the number of tokens
+     */
+    public int countTokens(List<Message> messages, String model) {
+        Encoding encoding = getEncoding(model);
+        int tokens = TOKENS_PER_REPLY;
+        for (Message message : messages) {
+            tokens += TOKENS_PER_MESSAGE + encoding.countTokensOrdinary(message.content());
+        }
+        return tokens;
+    }
+
+    /**
+     * Cuts a text down to a number of tokens.
+     *
+     * @param text      text to truncate
+     * @param maxTokens maximum number of tokens to keep
+     * @param model     model the text is sent to, may be null
+     * @return the text itself if it fits, its first {@code maxTokens} tokens otherwise
+     */
+    public String truncate(String text, int maxTokens, String model) {
+        Encoding encoding = getEncoding(model);
+        EncodingResult result = encoding.encodeOrdinary(text, maxTokens);
+        return result.isTruncated() ? encoding.decode(result.getTokens()) : text;
+    }
+}
@@ -14,29 +14,45 @@ import com.auth0.json.mgmt.users.UsersPage;
 import com.tokorokoshi.tokoro.modules.exceptions.auth0.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service class that provides operations for interacting with the Auth0 Management API.
  * Includes methods for fetching, updating, deleting users, and managing user metadata and roles.
+ * Fetched users are cached by {@link Auth0UserCache}, and every write replaces or evicts the cached user.
+ * Roles and role members are cached by {@link Auth0RoleCache}.
  */
 @Service
 public class Auth0ManagementService {
     private static final Logger log = LoggerFactory.getLogger(Auth0ManagementService.class);
 
     private final ManagementAPI managementAPI;
+    private final Auth0UserCache userCache;
+    private final Auth0RoleCache roleCache;
+
+    @Value("${auth0.role-cache.members-page-size}")
+    private int roleMembersPageSize;
 
     /**
      * Constructs an instance of Auth0ManagementService.
      *
      * @param managementAPI the ManagementAPI instance used for making requests to the Auth0 Management API.
+     * @param userCache     the cache of the fetched users, kept up to date by every write of this service.
+     * @param roleCache     the cache of the roles and role members, invalidated by every role change of this service.
      */
-    public Auth0ManagementService(ManagementAPI managementAPI) {
+    public Auth0ManagementService(
+            ManagementAPI managementAPI,
+            Auth0UserCache userCache,
+            Auth0RoleCache roleCache
+    ) {
         this.managementAPI = managementAPI;
+        this.userCache = userCache;
+        this.roleCache = roleCache;
     }
 
     /**
@@ -47,6 +63,17 @@ public class Auth0ManagementService {
      * @throws UserFetchException if there is an error during the fetching process.
      */
     public User getUser(String userId) {
+        return userCache.get(userId, this::fetchUser);
+    }
+
+    /**
+     * Fetches a user from Auth0, bypassing the cache.
+     *
+     * @param userId the Auth0 user ID to fetch.
+     * @return the {@link User} object representing the Auth0 user.
+     * @throws UserFetchException if there is an error during the fetching process.
+     */
+    private User fetchUser(String userId) {
         try {
             return managementAPI.users()
                     .get(userId, new UserFilter())
@@ -58,44 +85,32 @@ public class Auth0ManagementService {
         }
     }
 
-   /**
-     * Fetches all users
+    /**
+     * Fetches a page of the users updated since a given time, oldest update first.
+     * Auth0 returns at most the first 1000 results of a search, so callers page through
+     * larger sets by searching again from the last update time they received.
      *
+     * @param since    the earliest update time to include, or null for all users.
+     * @param page     the page number, starting at 0.
+     * @param pageSize the number of users per page.
+     * @return the users of the page.
      * @throws UserFetchException if there is an error during the fetching process.
      */
-    public List<User> getUsers(Pageable pageable) {
+    public List<User> getUsersUpdatedSince(Date since, int page, int pageSize) {
+        String from = since == null ? "*" : since.toInstant().toString();
         try {
-            UserFilter filter = new UserFilter().withPage(
-                    pageable.getPageNumber(),
-                    pageable.getPageSize()
-            );
+            UserFilter filter = new UserFilter()
+                    .withQuery("updated_at:[" + from + " TO *]")
+                    .withSort("updated_at:1")
+                    .withPage(page, pageSize);
             return managementAPI.users()
                     .list(filter)
                     .execute()
-                    .getBody().getItems();
-        } catch (Auth0Exception e) {
-            log.error("Error fetching users", e);
-            throw new UserFetchException("Error fetching users", e);
-        }
-    }
-
-    /**
-     * Searches for users in Auth0 using a query string.
-     *
-     * @param query the query string used for searching users (e.g., filter by email, name, etc.).
-     * @return a list of {@link User} objects matching the search query.
-     * @throws UserSearchException if there is an error during the search process.
-     */
-    public List<User> searchUsers(String query) {
-        try {
-            UsersPage usersPage = managementAPI.users()
-                    .list(new UserFilter().withQuery(query))
-                    .execute()
-                    .getBody();
-            return usersPage.getItems();
+                    .getBody()
+                    .getItems();
         } catch (Auth0Exception e) {
-            log.error("Error searching users with query: {}", query, e);
-            throw new UserSearchException("Error searching users with query: " + query, e);
+            log.error("Error fetching users updated since {}", from, e);
+            throw new UserFetchException("Error fetching users updated since " + from, e);
         }
     }
 
@@ -110,9 +125,11 @@ public class Auth0ManagementService {
         try {
             User updateRequest = new User();
             updateRequest.setUserMetadata(metadata);
-            managementAPI.users()
+            User updatedUser = managementAPI.users()
                     .update(userId, updateRequest)
-                    .execute();
+                    .execute()
+                    .getBody();
+            userCache.put(userId, updatedUser);
         } catch (Auth0Exception e) {
             log.error("Error updating user metadata for ID: {}", userId, e);
             throw new UserUpdateException("Error updating user metadata for ID: " + userId, e);
@@ -130,6 +147,7 @@ public class Auth0ManagementService {
             managementAPI.users()
                     .delete(userId)
                     .execute();
+            userCache.evict(userId);
         } catch (Auth0Exception e) {
             log.error("Error deleting user with ID: {}", userId, e);
             throw new UserDeleteException("Error deleting user with ID: " + userId, e);
@@ -149,9 +167,11 @@ public class Auth0ManagementService {
             User updateRequest = new User();
             updateRequest.setGivenName(firstName);
             updateRequest.setFamilyName(lastName);
-            managementAPI.users()
+            User updatedUser = managementAPI.users()
                     .update(userId, updateRequest)
-                    .execute();
+                    .execute()
+                    .getBody();
+            userCache.put(userId, updatedUser);
         } catch (Auth0Exception e) {
             log.error("Error updating user name for ID: {}", userId, e);
             throw new UserUpdateException("Error updating user name for ID: " + userId, e);
@@ -169,9 +189,11 @@ public class Auth0ManagementService {
         try {
             User updateRequest = new User();
             updateRequest.setPicture(avatarUrl);
-            managementAPI.users()
+            User updatedUser = managementAPI.users()
                     .update(userId, updateRequest)
-                    .execute();
+                    .execute()
+                    .getBody();
+            userCache.put(userId, updatedUser);
         } catch (Auth0Exception e) {
             log.error("Error updating user avatar for ID: {}", userId, e);
             throw new UserUpdateException("Error updating user avatar for ID: " + userId, e);
@@ -186,16 +208,7 @@ public class Auth0ManagementService {
      * @throws UserFetchException if there is an error during the fetch process.
      */
     public String getUserAvatar(String userId) {
-        try {
-            User user = managementAPI.users()
-                    .get(userId, new UserFilter())
-                    .execute()
-                    .getBody();
-            return user.getPicture();
-        } catch (Auth0Exception e) {
-            log.error("Error fetching user avatar for ID: {}", userId, e);
-            throw new UserFetchException("Error fetching user avatar for ID: " + userId, e);
-        }
+        return getUser(userId).getPicture();
     }
 
     /**
@@ -205,6 +218,16 @@ public class Auth0ManagementService {
      * @throws RoleFetchException if there is an error during the fetching process.
      */
     public List<Role> getAllRoles() {
+        return roleCache.getRoles(this::fetchAllRoles);
+    }
+
+    /**
+     * Fetches all roles from Auth0, bypassing the cache.
+     *
+     * @return a list of {@link Role} objects representing all roles in the tenant.
+     * @throws RoleFetchException if there is an error during the fetching process.
+     */
+    private List<Role> fetchAllRoles() {
         try {
             RolesPage rolesPage = managementAPI.roles()
                     .list(new RolesFilter())
@@ -225,6 +248,11 @@ public class Auth0ManagementService {
      * @throws RoleFetchException if there is an error during the fetching process.
      */
     public List<String> getUserRoles(String userId) {
+        Map<String, List<String>> rolesByUser = roleCache.findRolesByUser();
+        if (rolesByUser != null) {
+            return rolesByUser.getOrDefault(userId, List.of());
+        }
+
         try {
             RolesPage rolesPage = managementAPI.users()
                     .listRoles(userId, new RolesFilter())
@@ -237,6 +265,72 @@ public class Auth0ManagementService {
         }
     }
 
+    /**
+     * Fetches the roles assigned to several users at once.
+     * The roles are resolved from the cached members of every role,
+     * so a page of users costs no Management API call per user.
+     *
+     * @param userIds the Auth0 user IDs of the users whose roles will be fetched.
+     * @return the role names of each user, by Auth0 user ID.
+     * @throws RoleFetchException if there is an error during the fetching process.
+     */
+    public Map<String, List<String>> getUsersRoles(Collection<String> userIds) {
+        Map<String, List<String>> rolesByUser = roleCache.getRolesByUser(this::fetchRolesByUser);
+        return userIds.stream()
+                .distinct()
+                .collect(Collectors.toMap(
+                        Function.identity(),
+                        userId -> rolesByUser.getOrDefault(userId, List.of())
+                ));
+    }
+
+    /**
+     * Builds the role names of every user that has a role, listing the members of each role.
+     *
+     * @return the role names by Auth0 user ID.
+     * @throws RoleFetchException if there is an error during the fetching process.
+     */
+    private Map<String, List<String>> fetchRolesByUser() {
+        Map<String, List<String>> rolesByUser = new HashMap<>();
+        for (Role role : getAllRoles()) {
+            for (String userId : fetchRoleMembers(role)) {
+                rolesByUser.computeIfAbsent(userId, id -> new ArrayList<>()).add(role.getName());
+            }
+        }
+        rolesByUser.replaceAll((userId, roleNames) -> List.copyOf(roleNames));
+        return Map.copyOf(rolesByUser);
+    }
+
+    /**
+     * Lists the IDs of the users that have a role, following the checkpoint pagination of Auth0.
+     *
+     * @param role the role.
+     * @return the Auth0 user IDs.
+     * @throws RoleFetchException if there is an error during the fetching process.
+     */
+    private List<String> fetchRoleMembers(Role role) {
+        List<String> userIds = new ArrayList<>();
+        String from = null;
+        try {
+            do {
+                PageFilter filter = new PageFilter().withTake(roleMembersPageSize);
+                if (from != null) {
+                    filter.withFrom(from);
+                }
+                UsersPage page = managementAPI.roles()
+                        .listUsers(role.getId(), filter)
+                        .execute()
+                        .getBody();
+                page.getItems().forEach(user -> userIds.add(user.getId()));
+                from = page.getItems().isEmpty() ? null : page.getNext();
+            } while (from != null);
+        } catch (Auth0Exception e) {
+            log.error("Error fetching members of role: {}", role.getName(), e);
+            throw new RoleFetchException("Error fetching members of role: " + role.getName(), e);
+        }
+        return userIds;
+    }
+
     /**
      * Assigns roles to a user.
      *
@@ -253,6 +347,7 @@ public class Auth0ManagementService {
             managementAPI.users()
                     .addRoles(userId, roleIds)
                     .execute();
+            roleCache.invalidateRolesByUser();
         } catch (Auth0Exception e) {
             log.error("Error assigning roles to user with ID: {}", userId, e);
             throw new RoleAssignmentException("Error assigning roles to user with ID: " + userId, e);
@@ -271,6 +366,7 @@ public class Auth0ManagementService {
             managementAPI.users()
                     .removeRoles(userId, roleIds)
                     .execute();
+            roleCache.invalidateRolesByUser();
         } catch (Auth0Exception e) {
             log.error("Error removing roles from user with ID: {}", userId, e);
             throw new RoleRemovalException("Error removing roles from user with ID: " + userId, e);
@@ -306,19 +402,10 @@ public class Auth0ManagementService {
      *
      * @param userId the Auth0 user ID of the user to check if they are blocked.
      * @return true if the user is blocked, false otherwise.
-     * @throws Auth0ManagementException      if there is an error fetching the user from Auth0.
+     * @throws UserFetchException if there is an error fetching the user from Auth0.
      */
     public Boolean isUserBlocked(String userId) {
-        try {
-            User user = managementAPI.users()
-                    .get(userId, new UserFilter())
-                    .execute()
-                    .getBody();
-            return user.isBlocked();
-        } catch (Auth0Exception e) {
-            log.error("Error fetching user with ID {}", userId, e);
-            throw new Auth0ManagementException("Failed to fetch user with ID " + userId, e);
-        }
+        return getUser(userId).isBlocked();
     }
 
     /**
@@ -331,9 +418,11 @@ public class Auth0ManagementService {
         try {
             User updateRequest = new User();
             updateRequest.setBlocked(true);
-            managementAPI.users()
+            User updatedUser = managementAPI.users()
                     .update(userId, updateRequest)
-                    .execute();
+                    .execute()
+                    .getBody();
+            userCache.put(userId, updatedUser);
         } catch (Auth0Exception e) {
             log.error("Error blocking user with ID: {}", userId, e);
             throw new UserUpdateException("Error blocking user with ID: " + userId, e);
@@ -350,9 +439,11 @@ public class Auth0ManagementService {
         try {
             User updateRequest = new User();
             updateRequest.setBlocked(false);
-            managementAPI.users()
+            User updatedUser = managementAPI.users()
                     .update(userId, updateRequest)
-                    .execute();
+                    .execute()
+                    .getBody();
+            userCache.put(userId, updatedUser);
         } catch (Auth0Exception e) {
             log.error("Error unblocking user with ID: {}", userId, e);
             throw new UserUpdateException("Error unblocking user with ID: " + userId, e);
@@ -367,16 +458,7 @@ public class Auth0ManagementService {
      * @throws UserFetchException if there is an error during the fetching process.
      */
     public String getUserNickname(String userId) {
-        try {
-            User user = managementAPI.users()
-                    .get(userId, new UserFilter())
-                    .execute()
-                    .getBody();
-            return user.getNickname();
-        } catch (Auth0Exception e) {
-            log.error("Error fetching nickname for user with ID: {}", userId, e);
-            throw new UserFetchException("Error fetching nickname for user with ID: " + userId, e);
-        }
+        return getUser(userId).getNickname();
     }
 
     /**
@@ -390,9 +472,11 @@ public class Auth0ManagementService {
         try {
             User updateRequest = new User();
             updateRequest.setNickname(nickname);
-            managementAPI.users()
+            User updatedUser = managementAPI.users()
                     .update(userId, updateRequest)
-                    .execute();
+                    .execute()
+                    .getBody();
+            userCache.put(userId, updatedUser);
         } catch (Auth0Exception e) {
             log.error("Error updating nickname for user with ID: {}", userId, e);
             throw new UserUpdateException("Error updating nickname for user with ID: " + userId, e);
@@ -0,0 +1,320 @@
+package com.tokorokoshi.tokoro.modules.auth0;
+
+import com.auth0.net.client.Auth0HttpResponse;
+import com.tokorokoshi.tokoro.modules.exceptions.auth0.Auth0RateLimitExceededException;
+import com.tokorokoshi.tokoro.modules.overload.RequestPriority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Schedules the calls to the Auth0 Management API within the tenant rate limit.
+ * <p>
+ * The remaining quota and its reset time are read from the {@code X-RateLimit-*} headers of every response.
+ * While plenty of quota is left, calls are sent at once. Below {@code auth0.rate-limit.slowdown-ratio}
+ * of the limit, calls are spread evenly over the time left until the reset, so they slow down
+ * instead of running into the limit. A rate-limited response stops every call until its
+ * {@code Retry-After}, or until the reset if there is none.
+ * </p>
+ * <p>
+ * Waiting calls are sent by priority, then in arrival order, so interactive reads go before writes
+ * and writes before listings. A call that would wait longer than {@code auth0.rate-limit.max-wait-ms}
+ * is rejected with an {@link Auth0RateLimitExceededException}.
+ * </p>
+ */
+@Component
+public class Auth0RequestScheduler {
+    private static final Logger log = LoggerFactory.getLogger(Auth0RequestScheduler.class);
+
+    private static final String LIMIT_HEADER = "x-ratelimit-limit";
+    private static final String REMAINING_HEADER = "x-ratelimit-remaining";
+    private static final String RESET_HEADER = "x-ratelimit-reset";
+    private static final String RETRY_AFTER_HEADER = "retry-after";
+
+    /**
+     * A call waiting for its turn, ordered by priority, then by arrival.
+     */
+    private record Ticket(RequestPriority priority, long sequence) implements Comparable<Ticket> {
+        @Override
+        public int compareTo(Ticket other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final double slowdownRatio;
+    private final long maxWaitNanos;
+    private final long defaultRetryAfterNanos;
+
+    /**
+     * Guards the state below. A lock rather than a monitor,
+     * so waiting calls do not pin the carriers of virtual threads.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Ticket> queue = new PriorityQueue<>();
+    private long sequence;
+    private int inFlight;
+    private long lastSentAt;
+
+    /**
+     * The rate limit state of the last response, or -1 before the first one.
+     */
+    private long limit = -1;
+    private volatile long remaining = -1;
+    private long resetAt;
+
+    /**
+     * The time before which no call may be sent, after a rate-limited response.
+     */
+    private long blockedUntil;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Counter throttledCounter;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public Auth0RequestScheduler(
+            @Value("${auth0.rate-limit.slowdown-ratio}") double slowdownRatio,
+            @Value("${auth0.rate-limit.max-wait-ms}") long maxWaitMs,
+            @Value("${auth0.rate-limit.default-retry-after-ms}") long defaultRetryAfterMs,
+            MeterRegistry meterRegistry
+    ) {
+        this.slowdownRatio = slowdownRatio;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.defaultRetryAfterNanos = TimeUnit.MILLISECONDS.toNanos(defaultRetryAfterMs);
+        this.meterRegistry = meterRegistry;
+
+        meterRegistry.gauge("auth0.rate-limit.queue.depth", queueDepth);
+        Gauge.builder("auth0.rate-limit.remaining", this, scheduler -> scheduler.remaining)
+                .description("Management API calls left before the rate limit, as of the last response")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("auth0.rate-limit.wait")
+                .description("Time Management API calls wait for the rate limit")
+                .register(meterRegistry);
+        this.throttledCounter = Counter.builder("auth0.rate-limit.throttled")
+                .description("Management API calls rejected by Auth0 with 429 Too Many Requests")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Waits until a call may be sent. Every acquired call must be released.
+     *
+     * @param priority the priority of the call.
+     * @throws Auth0RateLimitExceededException if the call would wait longer than the maximum.
+     */
+    public void acquire(RequestPriority priority) {
+        long start = System.nanoTime();
+        long deadline = start + maxWaitNanos;
+        queueDepth.incrementAndGet();
+        lock.lock();
+        Ticket ticket = new Ticket(priority, sequence++);
+        queue.add(ticket);
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                long wait = deadline - now;
+                if (queue.peek() == ticket) {
+                    long delay = getDelay(now);
+                    if (delay == 0) {
+                        queue.remove();
+                        inFlight++;
+                        lastSentAt = now;
+                        changed.signalAll();
+                        return;
+                    }
+                    if (delay > wait) {
+                        reject(ticket, "timeout");
+                    }
+                    wait = delay;
+                } else if (wait <= 0) {
+                    reject(ticket, "timeout");
+                }
+                changed.awaitNanos(wait);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(ticket, "interrupted");
+        } finally {
+            lock.unlock();
+            queueDepth.decrementAndGet();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Releases an acquired call and records the rate limit state of its response.
+     *
+     * @param response the response of the call, or null if it failed without one.
+     */
+    public void release(Auth0HttpResponse response) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (response != null) {
+                update(response);
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the rate limit state of the response of a call that was not acquired,
+     * e.g. an asynchronous one.
+     *
+     * @param response the response.
+     */
+    public void record(Auth0HttpResponse response) {
+        lock.lock();
+        try {
+            update(response);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Works out how long the next call has to wait. Must be called with the lock held.
+     *
+     * @param now the current time, in nanoseconds.
+     * @return the time to wait, in nanoseconds, or 0 if the call may be sent now.
+     */
+    private long getDelay(long now) {
+        if (now < blockedUntil) {
+            return blockedUntil - now;
+        }
+        if (limit <= 0 || now >= resetAt) {
+            return 0;
+        }
+
+        // Calls still in flight have not been counted by the last response
+        long available = remaining - inFlight;
+        if (available <= 0) {
+            return resetAt - now;
+        }
+        if (available >= limit * slowdownRatio) {
+            return 0;
+        }
+        long spacing = (resetAt - now) / available;
+        return Math.max(0, lastSentAt + spacing - now);
+    }
+
+    /**
+     * Reads the rate limit headers of a response. Must be called with the lock held.
+     *
+     * @param response the response.
+     */
+    private void update(Auth0HttpResponse response) {
+        Map<String, String> headers = response.getHeaders();
+        Long responseLimit = parseLong(getHeader(headers, LIMIT_HEADER));
+        Long responseRemaining = parseLong(getHeader(headers, REMAINING_HEADER));
+        Long responseReset = parseLong(getHeader(headers, RESET_HEADER));
+        long now = System.nanoTime();
+        if (responseLimit != null && responseRemaining != null && responseReset != null) {
+            limit = responseLimit;
+            remaining = responseRemaining;
+            resetAt = now + toNanosFromNow(Instant.ofEpochSecond(responseReset));
+        }
+
+        if (response.getCode() == 429) {
+            throttledCounter.increment();
+            long retryAfter = getRetryAfter(getHeader(headers, RETRY_AFTER_HEADER));
+            if (retryAfter < 0) {
+                retryAfter = responseReset != null
+                        ? toNanosFromNow(Instant.ofEpochSecond(responseReset))
+                        : defaultRetryAfterNanos;
+            }
+            blockedUntil = Math.max(blockedUntil, now + Math.max(retryAfter, 0));
+            log.warn("Management API rate limit reached, pausing calls for {} ms",
+                    TimeUnit.NANOSECONDS.toMillis(retryAfter));
+        }
+    }
+
+    /**
+     * Removes a waiting call from the queue and fails it. Must be called with the lock held.
+     *
+     * @param ticket the call.
+     * @param reason reason of the rejection, used to tag the metric.
+     * @throws Auth0RateLimitExceededException always.
+     */
+    private void reject(Ticket ticket, String reason) {
+        queue.remove(ticket);
+        changed.signalAll();
+        meterRegistry.counter("auth0.rate-limit.rejected", "reason", reason).increment();
+        throw new Auth0RateLimitExceededException(
+                "Management API call of priority " + ticket.priority() + " rejected: " + reason
+        );
+    }
+
+    /**
+     * Parses a {@code Retry-After} header, given either in seconds or as an HTTP date.
+     *
+     * @param value the header value, or null.
+     * @return the time to wait, in nanoseconds, or -1 if the header is missing or invalid.
+     */
+    private static long getRetryAfter(String value) {
+        if (value == null) {
+            return -1;
+        }
+        Long seconds = parseLong(value);
+        if (seconds != null) {
+            return TimeUnit.SECONDS.toNanos(seconds);
+        }
+        try {
+            return toNanosFromNow(ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    private static long toNanosFromNow(Instant instant) {
+        return TimeUnit.MILLISECONDS.toNanos(instant.toEpochMilli() - System.currentTimeMillis());
+    }
+
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.strip());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Looks up a header regardless of the case of its name.
+     */
+    private static String getHeader(Map<String, String> headers, String name) {
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+}
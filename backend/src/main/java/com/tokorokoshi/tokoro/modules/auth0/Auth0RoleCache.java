@@ -0,0 +1,113 @@
+package com.tokorokoshi.tokoro.modules.auth0;
+
+import com.auth0.json.mgmt.roles.Role;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the Auth0 roles and of the role members.
+ * <p>
+ * Roles are few and rarely change, so the roles of many users are resolved
+ * from one index built by listing the members of every role,
+ * instead of asking Auth0 for the roles of each user.
+ * The index is dropped whenever this application assigns or removes roles,
+ * and expires after a while to pick up changes made elsewhere.
+ * </p>
+ * <p>
+ * Loads run on a virtual thread of their own, and callers wait for them outside the cache,
+ * so dropping the index never waits for a rebuild in progress.
+ * </p>
+ */
+@Component
+public class Auth0RoleCache {
+    private static final String KEY = "all";
+
+    private final AsyncCache<String, List<Role>> roles;
+    private final AsyncCache<String, Map<String, List<String>>> rolesByUser;
+
+    @Autowired
+    public Auth0RoleCache(@Value("${auth0.role-cache.ttl-seconds}") long ttlSeconds) {
+        Executor loadExecutor = task -> Thread.ofVirtual().name("auth0-role-load").start(task);
+        this.roles = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .executor(loadExecutor)
+                .buildAsync();
+        this.rolesByUser = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .executor(loadExecutor)
+                .buildAsync();
+    }
+
+    /**
+     * Returns all roles, loading them if they are not cached.
+     *
+     * @param loader fetches the roles from Auth0.
+     * @return the roles.
+     */
+    public List<Role> getRoles(Supplier<List<Role>> loader) {
+        return load(roles, loader);
+    }
+
+    /**
+     * Returns the role names of every user that has a role, loading the index if it is not cached.
+     * Concurrent loads are collapsed into one.
+     *
+     * @param loader builds the index from Auth0.
+     * @return the role names by Auth0 user ID.
+     */
+    public Map<String, List<String>> getRolesByUser(Supplier<Map<String, List<String>>> loader) {
+        return load(rolesByUser, loader);
+    }
+
+    /**
+     * Returns the role names of every user that has a role, if the index is cached.
+     *
+     * @return the role names by Auth0 user ID, or null if the index is not cached or still loading.
+     */
+    public Map<String, List<String>> findRolesByUser() {
+        CompletableFuture<Map<String, List<String>>> index = rolesByUser.getIfPresent(KEY);
+        return index != null && index.isDone() && !index.isCompletedExceptionally()
+                ? index.join()
+                : null;
+    }
+
+    /**
+     * Drops the role members index, e.g. after the roles of a user changed.
+     */
+    public void invalidateRolesByUser() {
+        rolesByUser.synchronous().invalidate(KEY);
+    }
+
+    /**
+     * Returns a cached value, or waits for its load.
+     *
+     * @param cache  the cache of the value.
+     * @param loader fetches the value from Auth0.
+     * @return the value.
+     */
+    private static <V> V load(AsyncCache<String, V> cache, Supplier<V> loader) {
+        CompletableFuture<V> value = cache.get(
+                KEY,
+                (key, executor) -> CompletableFuture.supplyAsync(loader, executor)
+        );
+        try {
+            return value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.tokorokoshi.tokoro.modules.auth0;
+
+import com.auth0.json.mgmt.users.User;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of Auth0 users.
+ * <p>
+ * Users are kept for a short time in a shared cache, and every user read during an HTTP request
+ * is also remembered for the rest of that request, so a request sees one consistent user
+ * and fetches it at most once. Writes must go through {@link #put} or {@link #evict}.
+ * </p>
+ * <p>
+ * Users are loaded on a virtual thread of their own, and callers wait for the load outside the cache,
+ * so a slow Auth0 request never blocks a thread inside a map computation.
+ * </p>
+ * <p>
+ * The cached {@link User} objects are shared and must not be modified.
+ * </p>
+ */
+@Component
+public class Auth0UserCache {
+    private static final String REQUEST_MEMO_ATTRIBUTE = Auth0UserCache.class.getName() + ".memo";
+
+    private final AsyncCache<String, User> users;
+
+    @Autowired
+    public Auth0UserCache(
+            @Value("${auth0.user-cache.ttl-seconds}") long ttlSeconds,
+            @Value("${auth0.user-cache.max-size}") long maxSize,
+            MeterRegistry meterRegistry
+    ) {
+        Executor loadExecutor = task -> Thread.ofVirtual().name("auth0-user-load").start(task);
+        this.users = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .executor(loadExecutor)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "auth0.users");
+    }
+
+    /**
+     * Returns a user, loading it if it is neither remembered by the current request nor cached.
+     * Concurrent loads of the same user are collapsed into one.
+     *
+     * @param userId the Auth0 user ID.
+     * @param loader fetches the user from Auth0.
+     * @return the user.
+     */
+    public User get(String userId, Function<String, User> loader) {
+        Map<String, User> memo = getRequestMemo();
+        if (memo == null) {
+            return load(userId, loader);
+        }
+
+        User user = memo.get(userId);
+        if (user == null) {
+            user = load(userId, loader);
+            if (user == null) {
+                return null;
+            }
+            User remembered = memo.putIfAbsent(userId, user);
+            if (remembered != null) {
+                user = remembered;
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Returns a cached user, or waits for its load.
+     *
+     * @param userId the Auth0 user ID.
+     * @param loader fetches the user from Auth0.
+     * @return the user.
+     */
+    private User load(String userId, Function<String, User> loader) {
+        CompletableFuture<User> user = users.get(
+                userId,
+                (id, executor) -> CompletableFuture.supplyAsync(() -> loader.apply(id), executor)
+        );
+        try {
+            return user.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Replaces a user after it was updated.
+     *
+     * @param userId the Auth0 user ID.
+     * @param user   the updated user, or null if unknown, in which case the user is evicted.
+     */
+    public void put(String userId, User user) {
+        if (user == null) {
+            evict(userId);
+            return;
+        }
+        users.put(userId, CompletableFuture.completedFuture(user));
+        Map<String, User> memo = getRequestMemo();
+        if (memo != null) {
+            memo.put(userId, user);
+        }
+    }
+
+    /**
+     * Forgets a user, e.g. after it was deleted.
+     *
+     * @param userId the Auth0 user ID.
+     */
+    public void evict(String userId) {
+        users.synchronous().invalidate(userId);
+        Map<String, User> memo = getRequestMemo();
+        if (memo != null) {
+            memo.remove(userId);
+        }
+    }
+
+    /**
+     * Retrieves the users remembered by the current HTTP request.
+     *
+     * @return the users by ID, or null outside an HTTP request.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, User> getRequestMemo() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+
+        var memo = (Map<String, User>) attributes.getAttribute(
+                REQUEST_MEMO_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST
+        );
+        if (memo == null) {
+            memo = new ConcurrentHashMap<>();
+            attributes.setAttribute(REQUEST_MEMO_ATTRIBUTE, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+        return memo;
+    }
+}
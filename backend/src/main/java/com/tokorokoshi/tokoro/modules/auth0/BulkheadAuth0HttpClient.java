@@ -0,0 +1,39 @@
+package com.tokorokoshi.tokoro.modules.auth0;
+
+import com.auth0.net.client.Auth0HttpClient;
+import com.auth0.net.client.Auth0HttpRequest;
+import com.auth0.net.client.Auth0HttpResponse;
+import com.tokorokoshi.tokoro.modules.bulkhead.Bulkhead;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HTTP client for the Auth0 SDK that sends every blocking request through a bulkhead.
+ * Asynchronous requests do not hold a request thread, so they are passed through.
+ */
+public class BulkheadAuth0HttpClient implements Auth0HttpClient {
+    private final Auth0HttpClient delegate;
+    private final Bulkhead bulkhead;
+
+    /**
+     * Constructs an instance of BulkheadAuth0HttpClient.
+     *
+     * @param delegate the client that sends the requests.
+     * @param bulkhead the bulkhead bounding concurrent requests.
+     */
+    public BulkheadAuth0HttpClient(Auth0HttpClient delegate, Bulkhead bulkhead) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public Auth0HttpResponse sendRequest(Auth0HttpRequest request) throws IOException {
+        return bulkhead.execute(() -> delegate.sendRequest(request));
+    }
+
+    @Override
+    public CompletableFuture<Auth0HttpResponse> sendRequestAsync(Auth0HttpRequest request) {
+        return delegate.sendRequestAsync(request);
+    }
+}
@@ -0,0 +1,199 @@
+package com.tokorokoshi.tokoro.modules.auth0;
+
+import com.auth0.json.auth.TokenHolder;
+import com.tokorokoshi.tokoro.modules.exceptions.auth0.Auth0ManagementException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the Auth0 Management API token fresh.
+ * <p>
+ * The token is refreshed in the background some time before it expires,
+ * and handed to the registered listeners, such as the Management API client,
+ * so requests keep using a valid token and never wait for a new one.
+ * Only one refresh runs at a time; concurrent callers share its result.
+ * </p>
+ * <p>
+ * The manager is created eagerly, so the first token is requested at startup
+ * instead of by the first request.
+ * </p>
+ */
+@Component
+@Lazy(false)
+public class ManagementTokenManager {
+    private static final Logger log = LoggerFactory.getLogger(ManagementTokenManager.class);
+
+    /**
+     * A Management API token and the time to replace it.
+     */
+    private record ManagementToken(String accessToken, Instant expiresAt, Instant refreshAt) {
+    }
+
+    private final TokenService tokenService;
+    private final TaskExecutor taskExecutor;
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    @Value("${auth0.token.refresh-before-expiry-seconds}")
+    private long refreshBeforeExpirySeconds;
+
+    private volatile ManagementToken current;
+
+    /**
+     * The refresh in progress, guarded by this manager.
+     */
+    private CompletableFuture<ManagementToken> refreshing;
+
+    @Autowired
+    public ManagementTokenManager(
+            TokenService tokenService,
+            @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor
+    ) {
+        this.tokenService = tokenService;
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Requests the first token in the background.
+     */
+    @PostConstruct
+    void start() {
+        refresh();
+    }
+
+    /**
+     * Returns a valid token, waiting for a refresh only if no valid token is available,
+     * which only happens right after startup or when Auth0 has been failing for the whole lifetime of a token.
+     *
+     * @return the Management API token.
+     * @throws Auth0ManagementException if no token could be obtained.
+     */
+    public String getToken() {
+        ManagementToken token = current;
+        if (token == null || !Instant.now().isBefore(token.expiresAt())) {
+            try {
+                token = refresh().join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Auth0ManagementException cause
+                        ? cause
+                        : new Auth0ManagementException("Failed to obtain Management API token", e.getCause());
+            }
+        }
+        return token.accessToken();
+    }
+
+    /**
+     * Registers a listener that receives every new token.
+     *
+     * @param listener the listener.
+     */
+    public void onRefresh(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Refreshes the token once it is due.
+     * A failed refresh is tried again on the next check, while the current token is still valid.
+     */
+    @Scheduled(
+            initialDelayString = "${auth0.token.check-interval-ms}",
+            fixedDelayString = "${auth0.token.check-interval-ms}"
+    )
+    public void refreshIfDue() {
+        ManagementToken token = current;
+        if (token == null || !Instant.now().isBefore(token.refreshAt())) {
+            refresh();
+        }
+    }
+
+    /**
+     * Starts a refresh in the background, unless one is already running.
+     *
+     * @return the refresh, completed with the new token.
+     */
+    private synchronized CompletableFuture<ManagementToken> refresh() {
+        if (refreshing != null) {
+            return refreshing;
+        }
+
+        CompletableFuture<ManagementToken> future = new CompletableFuture<>();
+        refreshing = future;
+        try {
+            taskExecutor.execute(() -> completeRefresh(future));
+        } catch (TaskRejectedException e) {
+            refreshing = null;
+            future.completeExceptionally(
+                    new Auth0ManagementException("Failed to start the Management API token refresh", e)
+            );
+        }
+        return future;
+    }
+
+    /**
+     * Requests a new token, hands it to the listeners and completes the refresh in progress.
+     *
+     * @param future the refresh in progress.
+     */
+    private void completeRefresh(CompletableFuture<ManagementToken> future) {
+        ManagementToken token = null;
+        RuntimeException failure = null;
+        try {
+            token = requestToken();
+            current = token;
+            String accessToken = token.accessToken();
+            listeners.forEach(listener -> listener.accept(accessToken));
+            log.info("Refreshed the Management API token, valid until {}", token.expiresAt());
+        } catch (RuntimeException e) {
+            log.error("Failed to refresh the Management API token", e);
+            failure = e;
+        } finally {
+            synchronized (this) {
+                refreshing = null;
+            }
+        }
+
+        if (failure == null) {
+            future.complete(token);
+        } else {
+            future.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Requests a new token and works out when to replace it:
+     * {@code auth0.token.refresh-before-expiry-seconds} before it expires,
+     * but no earlier than halfway through its lifetime.
+     *
+     * @return the new token.
+     * @throws Auth0ManagementException if the token could not be obtained.
+     */
+    private ManagementToken requestToken() {
+        Instant requestedAt = Instant.now();
+        TokenHolder holder = tokenService.requestManagementApiToken();
+
+        Duration lifetime = Duration.ofSeconds(holder.getExpiresIn());
+        Duration refreshBeforeExpiry = Duration.ofSeconds(refreshBeforeExpirySeconds);
+        if (refreshBeforeExpiry.compareTo(lifetime.dividedBy(2)) > 0) {
+            refreshBeforeExpiry = lifetime.dividedBy(2);
+        }
+
+        Instant expiresAt = requestedAt.plus(lifetime);
+        return new ManagementToken(holder.getAccessToken(), expiresAt, expiresAt.minus(refreshBeforeExpiry));
+    }
+}
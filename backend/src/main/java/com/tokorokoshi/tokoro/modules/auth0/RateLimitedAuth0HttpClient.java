@@ -0,0 +1,88 @@
+package com.tokorokoshi.tokoro.modules.auth0;
+
+import com.auth0.net.client.Auth0HttpClient;
+import com.auth0.net.client.Auth0HttpRequest;
+import com.auth0.net.client.Auth0HttpResponse;
+import com.auth0.net.client.HttpMethod;
+import com.tokorokoshi.tokoro.modules.overload.RequestPriority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HTTP client for the Auth0 SDK that sends every blocking request through the {@link Auth0RequestScheduler}.
+ * <p>
+ * Reads of a single resource are interactive and go first, writes next, and listings of users,
+ * such as the admin listing and the directory sync, last.
+ * A rate-limited response is sent again once the scheduler allows it, up to {@code maxRetries} times,
+ * which is safe since Auth0 did not process it.
+ * Asynchronous requests do not hold a request thread, so they are passed through
+ * and only their rate limit headers are recorded.
+ * </p>
+ */
+public class RateLimitedAuth0HttpClient implements Auth0HttpClient {
+    private static final Logger log = LoggerFactory.getLogger(RateLimitedAuth0HttpClient.class);
+
+    private final Auth0HttpClient delegate;
+    private final Auth0RequestScheduler scheduler;
+    private final int maxRetries;
+
+    /**
+     * Constructs an instance of RateLimitedAuth0HttpClient.
+     *
+     * @param delegate   the client that sends the requests.
+     * @param scheduler  the scheduler keeping the requests within the rate limit.
+     * @param maxRetries the maximum number of times a rate-limited request is sent again.
+     */
+    public RateLimitedAuth0HttpClient(Auth0HttpClient delegate, Auth0RequestScheduler scheduler, int maxRetries) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.maxRetries = maxRetries;
+    }
+
+    @Override
+    public Auth0HttpResponse sendRequest(Auth0HttpRequest request) throws IOException {
+        RequestPriority priority = getPriority(request);
+        for (int attempt = 0; ; attempt++) {
+            scheduler.acquire(priority);
+            Auth0HttpResponse response = null;
+            try {
+                response = delegate.sendRequest(request);
+            } finally {
+                scheduler.release(response);
+            }
+
+            if (response.getCode() != 429 || attempt >= maxRetries) {
+                return response;
+            }
+            log.debug("Sending rate-limited {} {} again", request.getMethod(), request.getUrl());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Auth0HttpResponse> sendRequestAsync(Auth0HttpRequest request) {
+        return delegate.sendRequestAsync(request).thenApply(response -> {
+            scheduler.record(response);
+            return response;
+        });
+    }
+
+    /**
+     * Works out the priority of a request from its method and path.
+     *
+     * @param request the request.
+     * @return {@link RequestPriority#LOW} for listings of users,
+     * {@link RequestPriority#NORMAL} for writes and {@link RequestPriority#HIGH} for other reads.
+     */
+    private static RequestPriority getPriority(Auth0HttpRequest request) {
+        if (request.getMethod() != HttpMethod.GET) {
+            return RequestPriority.NORMAL;
+        }
+        String path = URI.create(request.getUrl()).getPath();
+        // Both /users and /roles/{id}/users are listings
+        return path != null && path.endsWith("/users") ? RequestPriority.LOW : RequestPriority.HIGH;
+    }
+}
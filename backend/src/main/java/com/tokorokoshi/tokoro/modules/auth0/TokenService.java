@@ -6,18 +6,14 @@ import com.auth0.json.auth.TokenHolder;
 import com.tokorokoshi.tokoro.modules.exceptions.auth0.Auth0ManagementException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.retry.annotation.Retryable;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 /**
- * Service class responsible for managing and retrieving Auth0 tokens.
- * This class provides methods to fetch and cache the Management API token,
- * with retry mechanisms and scheduled cache eviction.
+ * Service class responsible for retrieving Auth0 tokens, with a retry mechanism.
+ * The Management API token is kept fresh by the {@link ManagementTokenManager}.
  */
 @Service
 @EnableRetry
@@ -40,17 +36,16 @@ public class TokenService {
     }
 
     /**
-     * Fetches the Auth0 Management API token, caches it, and retries on failure.
+     * Requests a new Auth0 Management API token, retrying on failure.
      *
-     * @return the Management API token.
+     * @return the token, with its lifetime.
      * @throws Auth0ManagementException if there is an error obtaining the token.
      */
     @Retryable(
-            retryFor = {Auth0Exception.class},
+            retryFor = {Auth0ManagementException.class},
             backoff = @Backoff(delay = 2000, multiplier = 2)
     )
-    @Cacheable(value = "auth0ManagementToken", unless = "#result == null")
-    public String getManagementApiToken() throws Auth0ManagementException {
+    public TokenHolder requestManagementApiToken() throws Auth0ManagementException {
         try {
             // Create an AuthAPI instance
             AuthAPI authAPI = authAPIFactory.createAuthAPI();
@@ -67,20 +62,11 @@ public class TokenService {
                 throw new Auth0ManagementException("Failed to obtain Management API token");
             }
 
-            return holder.getAccessToken();
+            return holder;
 
         } catch (Auth0Exception e) {
             log.error("Error obtaining Management API token due to Auth0 exception", e);
             throw new Auth0ManagementException("Failed to obtain Management API token due to Auth0 exception", e);
         }
     }
-
-    /**
-     * Evicts the cached Management API token once every 23 hours.
-     * This ensures that the token is refreshed periodically.
-     */
-    @Scheduled(fixedRate = 23 * 60 * 60 * 1000) // 23 hours
-    @CacheEvict(value = "auth0ManagementToken", allEntries = true)
-    public void evictManagementTokenCache() {
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,145 @@
+package com.tokorokoshi.tokoro.modules.bulkhead;
+
+import com.tokorokoshi.tokoro.modules.exceptions.bulkhead.BulkheadFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of concurrent calls to an outbound dependency,
+ * so a slow dependency cannot take every request thread.
+ * <p>
+ * A call waits at most {@code maxWaitMs} for a free slot and is then rejected
+ * with a {@link BulkheadFullException}.
+ * </p>
+ */
+public class Bulkhead {
+    /**
+     * A call that may throw a checked exception.
+     *
+     * @param <T> the result type
+     * @param <E> the exception type
+     */
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    private final String name;
+    private final int maxConcurrent;
+    private final long maxWaitMs;
+    private final Semaphore permits;
+    private final Timer waitTimer;
+    private final Counter rejectedCounter;
+
+    /**
+     * Creates a bulkhead and registers its metrics.
+     *
+     * @param name          name of the dependency, used to tag the metrics
+     * @param maxConcurrent maximum number of concurrent calls
+     * @param maxWaitMs     maximum time to wait for a free slot, in milliseconds
+     * @param meterRegistry registry of the metrics
+     */
+    public Bulkhead(String name, int maxConcurrent, long maxWaitMs, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitMs = maxWaitMs;
+        this.permits = new Semaphore(maxConcurrent, true);
+
+        Gauge.builder("bulkhead.active", permits, p -> maxConcurrent - p.availablePermits())
+                .description("Calls in progress through the bulkhead")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.waiting", permits, Semaphore::getQueueLength)
+                .description("Calls waiting for a bulkhead slot")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.max", () -> maxConcurrent)
+                .description("Maximum concurrent calls through the bulkhead")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("bulkhead.wait")
+                .description("Time calls wait for a bulkhead slot")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("bulkhead.rejected")
+                .description("Calls rejected because the bulkhead was full")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a slot, waiting at most {@code maxWaitMs}.
+     *
+     * @throws BulkheadFullException if no slot became free in time
+     */
+    private void acquire() {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        if (!acquired) {
+            rejectedCounter.increment();
+            throw new BulkheadFullException(
+                    "Too many concurrent calls to " + name + " (limit " + maxConcurrent + ")"
+            );
+        }
+    }
+
+    /**
+     * Runs a call in a bulkhead slot.
+     *
+     * @param call the call
+     * @param <T>  the result type
+     * @param <E>  the exception type of the call
+     * @return the result of the call
+     * @throws E                     if the call fails
+     * @throws BulkheadFullException if no slot became free in time
+     */
+    public <T, E extends Exception> T execute(Call<T, E> call) throws E {
+        acquire();
+        try {
+            return call.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Wraps an executor so each task holds a slot while it runs.
+     * The slot is taken when the task is submitted, so a saturated bulkhead
+     * rejects the submission instead of queueing the task.
+     *
+     * @param delegate the executor that runs the tasks
+     * @return the guarded executor
+     */
+    public Executor decorate(Executor delegate) {
+        return command -> {
+            acquire();
+            try {
+                delegate.execute(() -> {
+                    try {
+                        command.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        };
+    }
+}
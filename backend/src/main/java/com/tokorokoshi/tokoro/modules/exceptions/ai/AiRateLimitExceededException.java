@@ -0,0 +1,17 @@
+package com.tokorokoshi.tokoro.modules.exceptions.ai;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Custom exception class for AI calls rejected by the rate limiter.
+ */
+@ResponseStatus(
+        value = HttpStatus.TOO_MANY_REQUESTS,
+        reason = "Too many AI requests, try again later"
+)
+public class AiRateLimitExceededException extends RuntimeException {
+    public AiRateLimitExceededException(String message) {
+        super(message);
+    }
+}
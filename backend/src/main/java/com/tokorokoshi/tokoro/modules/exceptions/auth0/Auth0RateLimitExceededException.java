@@ -0,0 +1,18 @@
+package com.tokorokoshi.tokoro.modules.exceptions.auth0;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Custom exception class for Management API calls that could not be sent
+ * within the maximum wait because the Auth0 rate limit was exhausted.
+ */
+@ResponseStatus(
+        value = HttpStatus.SERVICE_UNAVAILABLE,
+        reason = "Service is busy, try again later"
+)
+public class Auth0RateLimitExceededException extends RuntimeException {
+    public Auth0RateLimitExceededException(String message) {
+        super(message);
+    }
+}
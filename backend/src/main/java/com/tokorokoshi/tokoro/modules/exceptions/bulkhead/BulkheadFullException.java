@@ -0,0 +1,21 @@
+package com.tokorokoshi.tokoro.modules.exceptions.bulkhead;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Custom exception class for calls rejected because a dependency is saturated.
+ * It is a {@link RejectedExecutionException}, so executors guarded by a bulkhead
+ * reject tasks the standard way.
+ */
+@ResponseStatus(
+        value = HttpStatus.SERVICE_UNAVAILABLE,
+        reason = "Service is busy, try again later"
+)
+public class BulkheadFullException extends RejectedExecutionException {
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+}
@@ -5,6 +5,7 @@ import com.tokorokoshi.tokoro.modules.error.NotFoundException;
 import com.tokorokoshi.tokoro.modules.favorites.dto.AddFavoriteDto;
 import com.tokorokoshi.tokoro.modules.favorites.dto.CollectionDto;
 import com.tokorokoshi.tokoro.modules.favorites.dto.CreateUpdateCollectionDto;
+import com.tokorokoshi.tokoro.modules.places.dto.PlaceDto;
 import com.tokorokoshi.tokoro.security.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -20,7 +21,6 @@ import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import java.util.UUID;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
@@ -82,14 +82,9 @@ public class CollectionsController {
             int size
     ) {
         Pageable pageable = PageRequest.of(page, size);
-        List<CollectionDto> collections = this.collectionService.getAllCollections(userId);
+        List<CollectionDto> pagedCollections = this.collectionService.getAllCollections(userId, pageable);
         long total = this.collectionService.countCollectionsForUser(userId);
 
-        List<CollectionDto> pagedCollections = collections.stream()
-                .skip((long) pageable.getPageNumber() * pageable.getPageSize())
-                .limit(pageable.getPageSize())
-                .collect(Collectors.toList());
-
         Page<CollectionDto> pageResult = new PageImpl<>(pagedCollections, pageable, total);
         var pagination = PaginationDto.fromEntityModel(
                 this.pagedResourcesAssembler.toModel(pageResult)
@@ -140,6 +135,28 @@ public class CollectionsController {
         return ResponseEntity.ok(collection);
     }
 
+    @Operation(
+            summary = "Get the places of a collection",
+            description = "Returns the places of the collection with the given ID for a user, in the order they were added"
+    )
+    @GetMapping(value = "/{collectionId}/places", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<PlaceDto>> getCollectionPlaces(
+            @Parameter(
+                    description = "The ID of the collection",
+                    required = true,
+                    example = "60f1b3b3b3b3b3b3b3b3b3b3"
+            )
+            @PathVariable
+            UUID collectionId
+    ) {
+        String userId = SecurityUtils.getAuthenticatedUserId();
+        List<PlaceDto> places = this.collectionService.getCollectionPlaces(userId, collectionId);
+        if (places == null) {
+            throw new NotFoundException("Collection not found");
+        }
+        return ResponseEntity.ok(places);
+    }
+
     @Operation(
             summary = "Update a collection",
             description = "Accepts a request with JSON data to update a collection, and returns the updated collection"
@@ -0,0 +1,18 @@
+package com.tokorokoshi.tokoro.modules.favorites;
+
+import com.tokorokoshi.tokoro.database.FavoriteCollection;
+import com.tokorokoshi.tokoro.modules.favorites.dto.CollectionDto;
+import org.mapstruct.Mapper;
+
+import java.util.List;
+
+@Mapper(componentModel = "spring")
+public interface CollectionsMapper {
+    FavoriteCollection toSchema(CollectionDto collectionDto);
+
+    List<FavoriteCollection> toSchema(List<CollectionDto> collectionDtos);
+
+    CollectionDto toDto(FavoriteCollection collection);
+
+    List<CollectionDto> toDto(List<FavoriteCollection> collections);
+}
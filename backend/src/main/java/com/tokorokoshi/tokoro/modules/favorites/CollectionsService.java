@@ -1,31 +1,90 @@
 package com.tokorokoshi.tokoro.modules.favorites;
 
+import com.tokorokoshi.tokoro.database.FavoriteCollection;
 import com.tokorokoshi.tokoro.modules.favorites.dto.CollectionDto;
 import com.tokorokoshi.tokoro.modules.favorites.dto.CreateUpdateCollectionDto;
-import com.tokorokoshi.tokoro.modules.users.UserService;
-import com.tokorokoshi.tokoro.modules.exceptions.auth0.UserUpdateException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tokorokoshi.tokoro.modules.places.PlaceHydrationService;
+import com.tokorokoshi.tokoro.modules.places.dto.PlaceDto;
+import com.tokorokoshi.tokoro.modules.users.profile.LegacyProfileMigration;
+import com.tokorokoshi.tokoro.modules.users.profile.UserProfileService;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
 import java.time.Instant;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.UUID;
 
+/**
+ * Service class that manages the collections of favorite places of users.
+ * <p>
+ * Every collection is a document of the {@code collection} collection, and places are added
+ * and removed with atomic {@code $addToSet} and {@code $pull} updates,
+ * so concurrent changes to the same collection do not overwrite each other.
+ * </p>
+ */
 @Service
 public class CollectionsService {
+    private static final String USER_ID = "userId";
+    private static final String NAME = "name";
+    private static final String PLACES_IDS = "placesIds";
 
-    private final UserService userService;
-    private final ObjectMapper objectMapper;
+    /**
+     * Case-insensitive comparison of collection names.
+     */
+    private static final Collation NAME_COLLATION = Collation.of(Locale.ENGLISH)
+            .strength(Collation.ComparisonLevel.secondary());
+
+    private final MongoTemplate repository;
+    private final CollectionsMapper collectionsMapper;
+    private final PlaceHydrationService placeHydrationService;
+
+    private final LegacyProfileMigration<CollectionDto> legacyCollectionsMigration;
 
     @Autowired
-    public CollectionsService(UserService userService, ObjectMapper objectMapper) {
-        this.userService = userService;
-        this.objectMapper = objectMapper;
+    public CollectionsService(
+            MongoTemplate repository,
+            UserProfileService userProfileService,
+            CollectionsMapper collectionsMapper,
+            PlaceHydrationService placeHydrationService
+    ) {
+        this.repository = repository;
+        this.collectionsMapper = collectionsMapper;
+        this.placeHydrationService = placeHydrationService;
+        this.legacyCollectionsMigration = new LegacyProfileMigration<>(
+                "collections",
+                userProfileService::takeLegacyCollections,
+                (userId, collections) -> repository.insert(
+                        collectionsMapper.toSchema(collections),
+                        FavoriteCollection.class
+                ),
+                userProfileService::restoreLegacyCollections
+        );
     }
 
-    private static final String COLLECTIONS_METADATA_KEY = "collections";
+    /**
+     * Creates the index used to list and search the collections of a user.
+     */
+    @PostConstruct
+    void ensureIndexes() {
+        repository.indexOps(FavoriteCollection.class).ensureIndex(new Index()
+                .on(USER_ID, Sort.Direction.ASC)
+                .on(NAME, Sort.Direction.ASC)
+                .collation(NAME_COLLATION)
+                .named("user_name"));
+    }
 
     /**
      * Saves a new collection for a user.
@@ -35,17 +94,16 @@ public class CollectionsService {
      * @return the saved collection.
      */
     public CollectionDto saveCollection(String userId, CreateUpdateCollectionDto createUpdateCollectionDto) {
-        List<CollectionDto> collections = getCollectionsForUser(userId);
-        var newCollection = new CollectionDto(
+        legacyCollectionsMigration.migrate(userId);
+
+        var newCollection = new FavoriteCollection(
                 UUID.randomUUID(),
+                userId,
                 createUpdateCollectionDto.name(),
-                createUpdateCollectionDto.placesIds(),
-                Instant.now(),
-                null
+                distinct(createUpdateCollectionDto.placesIds()),
+                Instant.now()
         );
-        collections.add(newCollection);
-        updateCollectionsForUser(userId, collections);
-        return newCollection;
+        return collectionsMapper.toDto(repository.insert(newCollection));
     }
 
     /**
@@ -56,21 +114,44 @@ public class CollectionsService {
      * @return the collection, or null if not found.
      */
     public CollectionDto getCollectionById(String userId, UUID id) {
-        List<CollectionDto> collections = getCollectionsForUser(userId);
-        return collections.stream()
-                .filter(collection -> collection.id().equals(id))
-                .findFirst()
-                .orElse(null);
+        legacyCollectionsMigration.migrate(userId);
+
+        FavoriteCollection collection = repository.findOne(byId(userId, id), FavoriteCollection.class);
+        return collection != null ? collectionsMapper.toDto(collection) : null;
     }
 
     /**
-     * Retrieves all collections for a user.
+     * Retrieves the places of a collection for a user, loading them with one query.
+     * Places that no longer exist are left out.
      *
      * @param userId the Auth0 user ID of the user.
+     * @param id     the collection ID.
+     * @return the places in the order they were added, or null if the collection is not found.
+     */
+    public List<PlaceDto> getCollectionPlaces(String userId, UUID id) {
+        CollectionDto collection = getCollectionById(userId, id);
+        if (collection == null) {
+            return null;
+        }
+        return placeHydrationService.hydrate(collection.placesIds()).stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Retrieves a page of the collections of a user, oldest first.
+     *
+     * @param userId   the Auth0 user ID of the user.
+     * @param pageable the page to retrieve.
      * @return a list of collections.
      */
-    public List<CollectionDto> getAllCollections(String userId) {
-        return getCollectionsForUser(userId);
+    public List<CollectionDto> getAllCollections(String userId, Pageable pageable) {
+        legacyCollectionsMigration.migrate(userId);
+
+        Query query = byUser(userId)
+                .with(Sort.by(Sort.Direction.ASC, "createdAt"))
+                .with(pageable);
+        return collectionsMapper.toDto(repository.find(query, FavoriteCollection.class));
     }
 
     /**
@@ -82,24 +163,12 @@ public class CollectionsService {
      * @return the updated collection.
      */
     public CollectionDto updateCollection(String userId, UUID id, CreateUpdateCollectionDto createUpdateCollectionDto) {
-        List<CollectionDto> collections = getCollectionsForUser(userId);
-        Optional<CollectionDto> optionalCollection = collections.stream()
-                .filter(collection -> collection.id().equals(id))
-                .findFirst();
-
-        if (optionalCollection.isPresent()) {
-            CollectionDto existingCollection = optionalCollection.get();
-            CollectionDto updatedCollection = existingCollection
-                    .withName(createUpdateCollectionDto.name())
-                    .withPlacesIds(createUpdateCollectionDto.placesIds())
-                    .withCreatedAt(existingCollection.createdAt()) // Keep the original creation time
-                    .withUserId(userId);
-            collections.set(collections.indexOf(existingCollection), updatedCollection);
-            updateCollectionsForUser(userId, collections);
-            return updatedCollection;
-        } else {
-            throw new IllegalArgumentException("Collection not found for id: " + id);
-        }
+        legacyCollectionsMigration.migrate(userId);
+
+        Update update = new Update()
+                .set(NAME, createUpdateCollectionDto.name())
+                .set(PLACES_IDS, distinct(createUpdateCollectionDto.placesIds()));
+        return modifyCollection(userId, id, update);
     }
 
     /**
@@ -109,15 +178,9 @@ public class CollectionsService {
      * @param id     the collection ID.
      */
     public void deleteCollection(String userId, UUID id) {
-        List<CollectionDto> collections = getCollectionsForUser(userId);
-        Optional<CollectionDto> optionalCollection = collections.stream()
-                .filter(collection -> collection.id().equals(id))
-                .findFirst();
-
-        if (optionalCollection.isPresent()) {
-            collections.remove(optionalCollection.get());
-            updateCollectionsForUser(userId, collections);
-        } else {
+        legacyCollectionsMigration.migrate(userId);
+
+        if (repository.remove(byId(userId, id), FavoriteCollection.class).getDeletedCount() == 0) {
             throw new IllegalArgumentException("Collection not found for id: " + id);
         }
     }
@@ -129,12 +192,31 @@ public class CollectionsService {
      * @return the number of collections.
      */
     public long countCollectionsForUser(String userId) {
-        List<CollectionDto> collections = getCollectionsForUser(userId);
-        return collections.size();
+        legacyCollectionsMigration.migrate(userId);
+
+        return repository.count(byUser(userId), FavoriteCollection.class);
+    }
+
+    /**
+     * Finds the collections of a user that contain a place, reading only their IDs.
+     *
+     * @param userId  the Auth0 user ID of the user.
+     * @param placeId the place ID.
+     * @return the IDs of the collections that contain the place.
+     */
+    public List<UUID> getCollectionIdsContainingPlace(String userId, String placeId) {
+        legacyCollectionsMigration.migrate(userId);
+
+        Query query = byUser(userId).addCriteria(Criteria.where(PLACES_IDS).is(placeId));
+        query.fields().include("_id");
+        return repository.find(query, FavoriteCollection.class).stream()
+                .map(FavoriteCollection::id)
+                .toList();
     }
 
     /**
      * Adds a favorite place to a collection.
+     * Adding a place that is already in the collection has no effect.
      *
      * @param userId  the Auth0 user ID of the user.
      * @param id      the collection ID.
@@ -142,25 +224,9 @@ public class CollectionsService {
      * @return the updated collection.
      */
     public CollectionDto addFavoritePlace(String userId, UUID id, String placeId) {
-        List<CollectionDto> collections = getCollectionsForUser(userId);
-        Optional<CollectionDto> optionalCollection = collections.stream()
-                .filter(collection -> collection.id().equals(id))
-                .findFirst();
-
-        if (optionalCollection.isPresent()) {
-            CollectionDto existingCollection = optionalCollection.get();
-            List<String> placesIds = new ArrayList<>(existingCollection.placesIds());
-            placesIds.add(placeId);
-            CollectionDto updatedCollection = existingCollection
-                    .withPlacesIds(placesIds)
-                    .withCreatedAt(existingCollection.createdAt()) // Keep the original creation time
-                    .withUserId(userId);
-            collections.set(collections.indexOf(existingCollection), updatedCollection);
-            updateCollectionsForUser(userId, collections);
-            return updatedCollection;
-        } else {
-            throw new IllegalArgumentException("Collection not found for id: " + id);
-        }
+        legacyCollectionsMigration.migrate(userId);
+
+        return modifyCollection(userId, id, new Update().addToSet(PLACES_IDS, placeId));
     }
 
     /**
@@ -171,24 +237,9 @@ public class CollectionsService {
      * @param placeId the place ID to remove.
      */
     public void removeFavoritePlace(String userId, UUID id, String placeId) {
-        List<CollectionDto> collections = getCollectionsForUser(userId);
-        Optional<CollectionDto> optionalCollection = collections.stream()
-                .filter(collection -> collection.id().equals(id))
-                .findFirst();
-
-        if (optionalCollection.isPresent()) {
-            CollectionDto existingCollection = optionalCollection.get();
-            List<String> placesIds = new ArrayList<>(existingCollection.placesIds());
-            placesIds.remove(placeId);
-            CollectionDto updatedCollection = existingCollection
-                    .withPlacesIds(placesIds)
-                    .withCreatedAt(existingCollection.createdAt()) // Keep the original creation time
-                    .withUserId(userId);
-            collections.set(collections.indexOf(existingCollection), updatedCollection);
-            updateCollectionsForUser(userId, collections);
-        } else {
-            throw new IllegalArgumentException("Collection not found for id: " + id);
-        }
+        legacyCollectionsMigration.migrate(userId);
+
+        applyCollectionUpdate(userId, id, new Update().pull(PLACES_IDS, placeId));
     }
 
     /**
@@ -198,91 +249,91 @@ public class CollectionsService {
      * @param id     the collection ID.
      */
     public void clearCollection(String userId, UUID id) {
-        List<CollectionDto> collections = getCollectionsForUser(userId);
-        Optional<CollectionDto> optionalCollection = collections.stream()
-                .filter(collection -> collection.id().equals(id))
-                .findFirst();
-
-        if (optionalCollection.isPresent()) {
-            CollectionDto existingCollection = optionalCollection.get();
-            CollectionDto updatedCollection = existingCollection
-                    .withPlacesIds(new ArrayList<>())
-                    .withCreatedAt(existingCollection.createdAt()) // Keep the original creation time
-                    .withUserId(userId);
-            collections.set(collections.indexOf(existingCollection), updatedCollection);
-            updateCollectionsForUser(userId, collections);
-        } else {
-            throw new IllegalArgumentException("Collection not found for id: " + id);
-        }
+        legacyCollectionsMigration.migrate(userId);
+
+        applyCollectionUpdate(userId, id, new Update().set(PLACES_IDS, List.of()));
     }
 
     /**
-     * Searches collections by name for a user.
+     * Searches collections by name for a user, ignoring case.
      *
      * @param userId the Auth0 user ID of the user.
      * @param name   the name to search for.
      * @return a list of collections matching the name.
      */
     public List<CollectionDto> searchCollectionsByName(String userId, String name) {
-        List<CollectionDto> collections = getCollectionsForUser(userId);
-        return collections.stream()
-                .filter(collection -> collection.name().equalsIgnoreCase(name))
-                .collect(Collectors.toList());
+        legacyCollectionsMigration.migrate(userId);
+
+        Query query = Query.query(Criteria.where(USER_ID).is(userId).and(NAME).is(name))
+                .collation(NAME_COLLATION);
+        return collectionsMapper.toDto(repository.find(query, FavoriteCollection.class));
     }
 
     /**
-     * Extracts collections from user metadata.
+     * Applies an update to a collection and returns the updated collection.
      *
-     * @param userMetadata the user metadata map.
-     * @return a list of {@link CollectionDto} objects.
+     * @param userId the Auth0 user ID of the user.
+     * @param id     the collection ID.
+     * @param update the update to apply.
+     * @return the updated collection.
+     * @throws IllegalArgumentException if the collection does not exist.
      */
-    @SuppressWarnings("unchecked")
-    private List<CollectionDto> getCollectionsFromMetadata(Map<String, Object> userMetadata) {
-        List<CollectionDto> collections = new ArrayList<>();
-
-        if (userMetadata == null) {
-            return collections;
+    private CollectionDto modifyCollection(String userId, UUID id, Update update) {
+        FavoriteCollection collection = repository.findAndModify(
+                byId(userId, id),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                FavoriteCollection.class
+        );
+        if (collection == null) {
+            throw new IllegalArgumentException("Collection not found for id: " + id);
         }
+        return collectionsMapper.toDto(collection);
+    }
 
-        if (userMetadata.containsKey(COLLECTIONS_METADATA_KEY)) {
-            List<Map<String, Object>> collectionsMap =
-                    (List<Map<String, Object>>) userMetadata.get(
-                            COLLECTIONS_METADATA_KEY);
-            collections = collectionsMap.stream()
-                    .map(map -> objectMapper.convertValue(
-                            map,
-                            CollectionDto.class
-                    ))
-                    .collect(Collectors.toList());
+    /**
+     * Applies an update to a collection.
+     *
+     * @param userId the Auth0 user ID of the user.
+     * @param id     the collection ID.
+     * @param update the update to apply.
+     * @throws IllegalArgumentException if the collection does not exist.
+     */
+    private void applyCollectionUpdate(String userId, UUID id, Update update) {
+        if (repository.updateFirst(byId(userId, id), update, FavoriteCollection.class).getMatchedCount() == 0) {
+            throw new IllegalArgumentException("Collection not found for id: " + id);
         }
-        return collections;
     }
 
     /**
-     * Fetches collections for a user from metadata.
+     * Builds a query for a collection of a user.
      *
      * @param userId the Auth0 user ID of the user.
-     * @return a list of collections.
+     * @param id     the collection ID.
+     * @return the query.
      */
-    private List<CollectionDto> getCollectionsForUser(String userId) {
-        Map<String, Object> metadata = userService.getUserMetadata(userId);
-        return getCollectionsFromMetadata(metadata);
+    private static Query byId(String userId, UUID id) {
+        return Query.query(Criteria.where("_id").is(id).and(USER_ID).is(userId));
     }
 
     /**
-     * Updates collections for a user in metadata.
+     * Builds a query for all collections of a user.
+     * It uses the collation of the {@code user_name} index, so the index can serve it.
      *
-     * @param userId      the Auth0 user ID of the user.
-     * @param collections the list of collections to update.
+     * @param userId the Auth0 user ID of the user.
+     * @return the query.
      */
-    private void updateCollectionsForUser(String userId, List<CollectionDto> collections) {
-        try {
-            String collectionsJson = objectMapper.writeValueAsString(collections);
-            Map<String, Object> metadata = new HashMap<>();
-            metadata.put(COLLECTIONS_METADATA_KEY, objectMapper.readTree(collectionsJson));
-            userService.updateUserMetadata(userId, metadata);
-        } catch (IOException e) {
-            throw new UserUpdateException("Error updating collections for user with ID: " + userId, e);
-        }
+    private static Query byUser(String userId) {
+        return Query.query(Criteria.where(USER_ID).is(userId)).collation(NAME_COLLATION);
+    }
+
+    /**
+     * Removes duplicate place IDs, keeping the first occurrence of each.
+     *
+     * @param placesIds the place IDs, may be null.
+     * @return the distinct place IDs.
+     */
+    private static List<String> distinct(List<String> placesIds) {
+        return placesIds == null ? new ArrayList<>() : placesIds.stream().distinct().toList();
     }
 }
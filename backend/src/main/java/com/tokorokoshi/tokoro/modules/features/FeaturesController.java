@@ -1,5 +1,6 @@
 package com.tokorokoshi.tokoro.modules.features;
 
+import com.tokorokoshi.tokoro.helpers.ContentSnapshot;
 import com.tokorokoshi.tokoro.modules.error.NotFoundException;
 import com.tokorokoshi.tokoro.modules.features.dto.CreateUpdateFeatureDto;
 import com.tokorokoshi.tokoro.modules.features.dto.FeatureDto;
@@ -84,15 +85,18 @@ public class FeaturesController {
 
     @Operation(
             summary = "Get all features",
-            description = "Returns a list of all features"
+            description = "Returns a list of all features, or 304 Not Modified for a conditional request of an unchanged list"
     )
     @GetMapping(
             value = {"", "/"},
             produces = APPLICATION_JSON_VALUE
     )
     public ResponseEntity<List<FeatureDto>> getAllFeatures() {
-        List<FeatureDto> features = featuresService.findAllFeatures();
-        return ResponseEntity.ok(features);
+        ContentSnapshot.Version<List<FeatureDto>> features = featuresService.findAllFeaturesSnapshot();
+        return ResponseEntity.ok()
+                .eTag(features.eTag())
+                .lastModified(features.lastModified())
+                .body(features.content());
     }
 
     @Operation(
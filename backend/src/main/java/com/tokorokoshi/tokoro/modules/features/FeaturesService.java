@@ -1,11 +1,18 @@
 package com.tokorokoshi.tokoro.modules.features;
 
 import com.tokorokoshi.tokoro.database.Feature;
+import com.tokorokoshi.tokoro.helpers.ContentSnapshot;
 import com.tokorokoshi.tokoro.modules.features.dto.CreateUpdateFeatureDto;
 import com.tokorokoshi.tokoro.modules.features.dto.FeatureDto;
 import com.tokorokoshi.tokoro.modules.file.FileStorageService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -13,13 +20,24 @@ import java.util.List;
 
 /**
  * Service class for features.
+ * <p>
+ * The list of all features is served from an in-memory snapshot, rebuilt after every write of this instance
+ * and every {@code content-snapshot.refresh-interval-ms}, which also renews the signed picture URLs
+ * well before they expire. The bean is created eagerly, so the snapshot is loaded at startup.
+ * </p>
  */
 @Service
+@Lazy(false)
 public class FeaturesService {
+    private static final Logger log = LoggerFactory.getLogger(FeaturesService.class);
 
     private final MongoTemplate repository;
     private final FeatureMapper featureMapper;
     private final FileStorageService fileStorageService;
+    private final ContentSnapshot<List<FeatureDto>> snapshot = new ContentSnapshot<>(this::loadFeatures);
+
+    @Value("${content-snapshot.url-ttl-seconds}")
+    private int urlTtlSeconds;
 
     @Autowired
     public FeaturesService(
@@ -40,6 +58,40 @@ public class FeaturesService {
         return featureMapper.toFeatureDto(feature.withPicture(pictureUrl));
     }
 
+    /**
+     * Get feature with a picture URL that expires after the given time.
+     */
+    private FeatureDto getFeatureWithPictureUrl(Feature feature, int expirationSeconds) {
+        String pictureUrl = fileStorageService.generateSignedUrl(feature.picture(), expirationSeconds).join();
+        return featureMapper.toFeatureDto(feature.withPicture(pictureUrl));
+    }
+
+    /**
+     * Loads all features for the snapshot, signing their pictures for {@code content-snapshot.url-ttl-seconds}.
+     */
+    private List<FeatureDto> loadFeatures() {
+        return repository.findAll(Feature.class)
+                .stream()
+                .map(feature -> getFeatureWithPictureUrl(feature, urlTtlSeconds))
+                .toList();
+    }
+
+    /**
+     * Rebuilds the features snapshot, keeping the current one if that fails.
+     */
+    @PostConstruct
+    @Scheduled(
+            initialDelayString = "${content-snapshot.refresh-interval-ms}",
+            fixedDelayString = "${content-snapshot.refresh-interval-ms}"
+    )
+    public void refreshSnapshot() {
+        try {
+            snapshot.refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh the features snapshot", e);
+        }
+    }
+
     /**
      * Validates the file to be an image.
      *
@@ -75,6 +127,7 @@ public class FeaturesService {
 
         // Save to MongoDB
         Feature savedFeature = repository.save(feature);
+        refreshSnapshot();
         return getFeatureWithPictureUrl(savedFeature);
     }
 
@@ -98,10 +151,16 @@ public class FeaturesService {
      * @return a list of features
      */
     public List<FeatureDto> findAllFeatures() {
-        List<Feature> features = repository.findAll(Feature.class);
-        return features.stream()
-                .map(this::getFeatureWithPictureUrl)
-                .toList();
+        return snapshot.get().content();
+    }
+
+    /**
+     * Finds the current version of the features snapshot, to serve it with conditional request headers.
+     *
+     * @return the current version of the list of features
+     */
+    public ContentSnapshot.Version<List<FeatureDto>> findAllFeaturesSnapshot() {
+        return snapshot.get();
     }
 
     /**
@@ -139,6 +198,7 @@ public class FeaturesService {
 
         // Save to MongoDB
         Feature updatedFeature = repository.save(feature);
+        refreshSnapshot();
         return getFeatureWithPictureUrl(updatedFeature);
     }
 
@@ -155,6 +215,7 @@ public class FeaturesService {
                 fileStorageService.deleteFile(feature.picture()).join();
             }
             repository.remove(feature);
+            refreshSnapshot();
         } else {
             throw new IllegalArgumentException("Feature document not found");
         }
@@ -1,14 +1,19 @@
 package com.tokorokoshi.tokoro.modules.file;
 
+import com.tokorokoshi.tokoro.configuration.BulkheadConfiguration;
+import com.tokorokoshi.tokoro.configuration.ExecutorConfiguration;
+import com.tokorokoshi.tokoro.modules.bulkhead.Bulkhead;
 import jakarta.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.core.sync.ResponseTransformer;
 import software.amazon.awssdk.regions.Region;
@@ -22,7 +27,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Implementation of FileStorageService using AWS S3.
@@ -35,18 +45,26 @@ public class R2FileStorageService implements FileStorageService {
 
     private final S3Client s3Client;
     private final S3Presigner presigner;
+    private final Executor executor;
 
     @Value("${aws.bucket}")
     private String bucketName;
 
     /**
      * Constructs an R2FileStorageService instance.
+     * Storage calls run through the storage bulkhead, and each call is bounded by a timeout,
+     * so a stalled store cannot hold a slot indefinitely.
      */
     public R2FileStorageService(
             @Value("${aws.accessKeyId}") String accessKey,
             @Value("${aws.secretKey}") String secretKey,
-            @Value("${aws.accountId}") String accountId
+            @Value("${aws.accountId}") String accountId,
+            @Value("${aws.api-call-timeout-ms}") long apiCallTimeoutMs,
+            @Value("${aws.api-call-attempt-timeout-ms}") long apiCallAttemptTimeoutMs,
+            @Qualifier(ExecutorConfiguration.FILE_STORAGE_EXECUTOR) Executor executor,
+            @Qualifier(BulkheadConfiguration.FILE_STORAGE_BULKHEAD) Bulkhead bulkhead
     ) {
+        this.executor = bulkhead.decorate(executor);
         AwsCredentials credentials = AwsBasicCredentials.create(
                 accessKey,
                 secretKey
@@ -61,6 +79,10 @@ public class R2FileStorageService implements FileStorageService {
                         ))
                 .region(Region.of("auto"))
                 .endpointOverride(endpointUri)
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .apiCallTimeout(Duration.ofMillis(apiCallTimeoutMs))
+                        .apiCallAttemptTimeout(Duration.ofMillis(apiCallAttemptTimeoutMs))
+                        .build())
                 .build();
 
         this.presigner = S3Presigner.builder()
@@ -91,7 +113,7 @@ public class R2FileStorageService implements FileStorageService {
             s3Client.putObject(request, RequestBody.empty());
             logger.trace("Folder created successfully: {}", normalizedFolder);
             return normalizedFolder;
-        }).exceptionally(ex -> {
+        }, executor).exceptionally(ex -> {
             throw new RuntimeException(
                     "Failed to create folder: " + folder,
                     ex
@@ -103,6 +125,22 @@ public class R2FileStorageService implements FileStorageService {
     public CompletableFuture<String> uploadFile(
             MultipartFile file,
             String folder
+    ) {
+        return uploadFile(file, folder, new AtomicBoolean());
+    }
+
+    /**
+     * Uploads a file, unless the batch it belongs to was aborted before the upload started.
+     *
+     * @param file    the file to upload
+     * @param folder  the folder to upload the file to
+     * @param aborted set once another upload of the batch failed
+     * @return the key of the uploaded file
+     */
+    private CompletableFuture<String> uploadFile(
+            MultipartFile file,
+            String folder,
+            AtomicBoolean aborted
     ) {
         logger.trace(
                 "Uploading file: {} to folder: {}",
@@ -110,6 +148,11 @@ public class R2FileStorageService implements FileStorageService {
                 folder
         );
         return CompletableFuture.supplyAsync(() -> {
+            if (aborted.get()) {
+                throw new CancellationException(
+                        "Upload of " + file.getOriginalFilename() + " aborted"
+                );
+            }
             try {
                 String extension = getFileExtension(
                         Objects.requireNonNull(file.getOriginalFilename())
@@ -137,7 +180,7 @@ public class R2FileStorageService implements FileStorageService {
                         ex
                 );
             }
-        });
+        }, executor);
     }
 
     @Override
@@ -151,25 +194,70 @@ public class R2FileStorageService implements FileStorageService {
 
         logger.trace("Uploading {} files to folder: {}", files.size(), folder);
 
-        List<CompletableFuture<String>> futures = files.stream()
-                .map(file -> uploadFile(
-                        file,
-                        folder
-                ))
-                .toList();
-
-        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-                .thenApply(v -> futures.stream()
-                        .map(CompletableFuture::join)
-                        .toList())
-                .exceptionally(ex -> {
+        // The first failure aborts the uploads that have not started yet,
+        // and the uploads that succeeded are deleted once every upload has settled
+        AtomicBoolean aborted = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (MultipartFile file : files) {
+            try {
+                CompletableFuture<String> upload = uploadFile(file, folder, aborted);
+                upload.whenComplete((key, ex) -> {
+                    if (ex != null) {
+                        failure.compareAndSet(null, unwrap(ex));
+                        aborted.set(true);
+                    }
+                });
+                futures.add(upload);
+            } catch (RuntimeException ex) {
+                // Rejected before it was submitted, e.g. by a saturated storage bulkhead
+                failure.compareAndSet(null, ex);
+                aborted.set(true);
+                break;
+            }
+        }
+
+        return CompletableFuture.allOf(futures.stream()
+                        .map(future -> future.handle((key, ex) -> key))
+                        .toArray(CompletableFuture[]::new))
+                .thenApply(v -> {
+                    if (!aborted.get()) {
+                        return futures.stream()
+                                .map(CompletableFuture::join)
+                                .toList();
+                    }
+                    futures.stream()
+                            .filter(future -> !future.isCompletedExceptionally())
+                            .forEach(future -> deleteUploadedFile(future.join()));
                     throw new RuntimeException(
                             "Failed to upload files",
-                            ex
+                            failure.get()
                     );
                 });
     }
 
+    /**
+     * Deletes a file uploaded by a failed batch, logging instead of failing.
+     *
+     * @param key the key of the file
+     */
+    private void deleteUploadedFile(String key) {
+        try {
+            deleteFile(key).exceptionally(ex -> {
+                logger.warn("Failed to delete orphaned file: {}", key, ex);
+                return false;
+            });
+        } catch (RuntimeException ex) {
+            logger.warn("Failed to delete orphaned file: {}", key, ex);
+        }
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null
+                ? ex.getCause()
+                : ex;
+    }
+
     @Override
     public CompletableFuture<byte[]> getFile(String key) {
         logger.trace("Retrieving file: {}", key);
@@ -183,7 +271,7 @@ public class R2FileStorageService implements FileStorageService {
 
             logger.trace("File retrieved successfully: {}", key);
             return response.asByteArray();
-        }).exceptionally(ex -> {
+        }, executor).exceptionally(ex -> {
             logger.warn("Failed to retrieve file: {}", key, ex);
             return new byte[0];
         });
@@ -209,7 +297,8 @@ public class R2FileStorageService implements FileStorageService {
             String overrideContentDisposition
     ) {
         logger.trace("Generating signed URL for file: {}", key);
-        return CompletableFuture.supplyAsync(() -> {
+        // Signing is local and makes no call to the store, so it does not take a bulkhead slot
+        try {
             GetObjectRequest.Builder requestBuilder = GetObjectRequest.builder()
                     .bucket(bucketName)
                     .key(key);
@@ -234,13 +323,13 @@ public class R2FileStorageService implements FileStorageService {
                     .url()
                     .toString();
             logger.trace("Signed URL generated successfully: {}", signedUrl);
-            return signedUrl;
-        }).exceptionally(ex -> {
-            throw new RuntimeException(
+            return CompletableFuture.completedFuture(signedUrl);
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(new RuntimeException(
                     "Failed to generate signed URL for file: " + key,
                     ex
-            );
-        });
+            ));
+        }
     }
 
     @Override
@@ -259,7 +348,7 @@ public class R2FileStorageService implements FileStorageService {
                 logger.error("Failed to delete file: {}", key);
             }
             return success;
-        });
+        }, executor);
     }
 
     @Override
@@ -303,7 +392,7 @@ public class R2FileStorageService implements FileStorageService {
                 logger.error("Failed to delete folder: {}", folder);
             }
             return success;
-        });
+        }, executor);
     }
 
     @Override
@@ -348,7 +437,7 @@ public class R2FileStorageService implements FileStorageService {
                     directory
             );
             return entries;
-        }).exceptionally(ex -> {
+        }, executor).exceptionally(ex -> {
             throw new RuntimeException(
                     "Failed to list entries in directory: " + directory,
                     ex
@@ -12,6 +12,7 @@ import org.springframework.ai.converter.BeanOutputConverter;
 public class JsonHelper {
     /**
      * Get the JSON schema for a class.
+     * The schema is generated on every call; use {@link JsonSchemaRegistry} on hot paths.
      *
      * @param type The class to get the schema for
      * @param <T>  The type of the class
@@ -90,6 +91,7 @@ public class JsonHelper {
 
     /**
      * Obtain an object from a JSON string.
+     * A new converter is built on every call; use {@link JsonSchemaRegistry} on hot paths.
      *
      * @param json The JSON string
      * @param type The type of the object
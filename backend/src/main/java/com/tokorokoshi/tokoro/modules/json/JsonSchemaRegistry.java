@@ -0,0 +1,86 @@
+package com.tokorokoshi.tokoro.modules.json;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the JSON schemas and output converters of AI response types.
+ * <p>
+ * Generating a schema and building a converter are expensive,
+ * so each is computed once per type and reused by every request.
+ * The types listed in {@code json.schema.prewarm-types} are registered at startup.
+ * </p>
+ */
+@Component
+@Lazy(false)
+public class JsonSchemaRegistry {
+    private static final Logger log = LoggerFactory.getLogger(JsonSchemaRegistry.class);
+
+    private final Map<Class<?>, String> schemas = new ConcurrentHashMap<>();
+    private final Map<Class<?>, BeanOutputConverter<?>> converters = new ConcurrentHashMap<>();
+
+    @Value("${json.schema.prewarm-types:}")
+    private List<String> prewarmTypes;
+
+    /**
+     * Registers the configured types, so the first requests do not pay for it.
+     *
+     * @throws ClassNotFoundException if a configured type does not exist
+     */
+    @PostConstruct
+    void prewarm() throws ClassNotFoundException {
+        for (String typeName : prewarmTypes) {
+            Class<?> type = ClassUtils.forName(typeName, getClass().getClassLoader());
+            getSchema(type);
+            getConverter(type);
+        }
+        log.info("Prewarmed JSON schemas for {} types", prewarmTypes.size());
+    }
+
+    /**
+     * Get the JSON schema for a class, generating it on first use.
+     *
+     * @param type The class to get the schema for
+     * @return The JSON schema
+     */
+    public String getSchema(Class<?> type) {
+        return schemas.computeIfAbsent(type, JsonHelper::getJsonSchema);
+    }
+
+    /**
+     * Get the output converter for a class, building it on first use.
+     *
+     * @param type The class to get the converter for
+     * @param <T>  The type of the class
+     * @return The output converter
+     */
+    @SuppressWarnings("unchecked")
+    public <T> BeanOutputConverter<T> getConverter(Class<T> type) {
+        return (BeanOutputConverter<T>) converters.computeIfAbsent(
+                type,
+                BeanOutputConverter::new
+        );
+    }
+
+    /**
+     * Obtain an object from a JSON string.
+     *
+     * @param json The JSON string
+     * @param type The type of the object
+     * @param <T>  The type of the object
+     * @return The object
+     */
+    public <T> T fromJson(String json, Class<T> type) {
+        return getConverter(type).convert(json);
+    }
+}
@@ -0,0 +1,109 @@
+package com.tokorokoshi.tokoro.modules.landing;
+
+import com.tokorokoshi.tokoro.modules.landing.dto.LandingDto;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Locale;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+@RestController
+@RequestMapping("/landing")
+@Tag(name = "Landing", description = "API for the landing page")
+public class LandingController {
+    private final LandingService landingService;
+
+    @Autowired
+    public LandingController(LandingService landingService) {
+        this.landingService = landingService;
+    }
+
+    /**
+     * Retrieves everything the landing page shows in one response.
+     * The response is compressed with gzip if the client accepts it,
+     * and a conditional request for an unchanged page is answered with 304 Not Modified.
+     *
+     * @param acceptEncoding the {@code Accept-Encoding} header of the request
+     * @return the landing page as JSON
+     */
+    @GetMapping(produces = APPLICATION_JSON_VALUE)
+    @Operation(
+            summary = "Get the landing page",
+            description = "Returns the About information, all features, random places, " +
+                    "random approved testimonials and the Privacy information",
+            responses = @ApiResponse(
+                    responseCode = "200",
+                    content = @Content(schema = @Schema(implementation = LandingDto.class))
+            )
+    )
+    public ResponseEntity<byte[]> getLanding(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+            String acceptEncoding
+    ) {
+        LandingPayload landing = landingService.getLanding();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        // Each encoding is a different representation, so it gets its own entity tag
+        if (acceptsGzip(acceptEncoding)) {
+            return response
+                    .eTag(landing.hash() + "-gzip")
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(landing.gzip());
+        }
+        return response
+                .eTag(landing.hash())
+                .body(landing.json());
+    }
+
+    /**
+     * Checks whether an {@code Accept-Encoding} header accepts gzip, honoring quality values:
+     * {@code gzip;q=0} refuses it, and {@code *} accepts it unless gzip is listed on its own.
+     *
+     * @param acceptEncoding the header, or null if the request has none
+     * @return true if gzip has a quality above 0
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].strip().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].strip();
+                if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQuality = quality;
+            } else if (coding.equals("*")) {
+                anyQuality = quality;
+            }
+        }
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return anyQuality != null && anyQuality > 0;
+    }
+}
@@ -0,0 +1,11 @@
+package com.tokorokoshi.tokoro.modules.landing;
+
+/**
+ * The landing page, serialized to JSON once and ready to be written to any number of responses.
+ *
+ * @param json the landing page as JSON
+ * @param gzip the JSON compressed with gzip
+ * @param hash a hash of the JSON, to derive entity tags from
+ */
+public record LandingPayload(byte[] json, byte[] gzip, String hash) {
+}
@@ -0,0 +1,188 @@
+package com.tokorokoshi.tokoro.modules.landing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tokorokoshi.tokoro.configuration.ExecutorConfiguration;
+import com.tokorokoshi.tokoro.modules.about.AboutService;
+import com.tokorokoshi.tokoro.modules.about.dto.AboutDto;
+import com.tokorokoshi.tokoro.modules.features.FeaturesService;
+import com.tokorokoshi.tokoro.modules.features.dto.FeatureDto;
+import com.tokorokoshi.tokoro.modules.landing.dto.LandingDto;
+import com.tokorokoshi.tokoro.modules.places.PlacesService;
+import com.tokorokoshi.tokoro.modules.places.dto.PlaceDto;
+import com.tokorokoshi.tokoro.modules.privacy.PrivacyService;
+import com.tokorokoshi.tokoro.modules.privacy.dto.PrivacyDto;
+import com.tokorokoshi.tokoro.modules.testimonials.TestimonialsService;
+import com.tokorokoshi.tokoro.modules.testimonials.dto.TestimonialDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service class that assembles the landing page, so the home page needs one request instead of five.
+ * <p>
+ * The parts of the page are looked up in parallel on the composite executor.
+ * The assembled page is serialized and compressed once and cached for {@code landing.cache.ttl-ms},
+ * so the random places and testimonials stay the same for that long.
+ * The page is assembled on a virtual thread of its own, and callers wait for it outside the cache,
+ * so the lookups never run inside a map computation.
+ * </p>
+ */
+@Service
+public class LandingService {
+    private static final String PAYLOAD_KEY = "landing";
+
+    private final AboutService aboutService;
+    private final FeaturesService featuresService;
+    private final PlacesService placesService;
+    private final TestimonialsService testimonialsService;
+    private final PrivacyService privacyService;
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+    private final int placesCount;
+    private final int testimonialsCount;
+    private final AsyncCache<String, LandingPayload> payloads;
+
+    @Autowired
+    public LandingService(
+            AboutService aboutService,
+            FeaturesService featuresService,
+            PlacesService placesService,
+            TestimonialsService testimonialsService,
+            PrivacyService privacyService,
+            ObjectMapper objectMapper,
+            @Qualifier(ExecutorConfiguration.COMPOSITE_EXECUTOR) Executor executor,
+            @Value("${landing.places-count}") int placesCount,
+            @Value("${landing.testimonials-count}") int testimonialsCount,
+            @Value("${landing.cache.ttl-ms}") long cacheTtlMs,
+            MeterRegistry meterRegistry
+    ) {
+        this.aboutService = aboutService;
+        this.featuresService = featuresService;
+        this.placesService = placesService;
+        this.testimonialsService = testimonialsService;
+        this.privacyService = privacyService;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.placesCount = placesCount;
+        this.testimonialsCount = testimonialsCount;
+        Executor loadExecutor = task -> Thread.ofVirtual().name("landing-load").start(task);
+        this.payloads = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(cacheTtlMs))
+                .executor(loadExecutor)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, payloads, "landing");
+    }
+
+    /**
+     * Gets the landing page, assembling it if the cached one expired.
+     * Concurrent requests for an expired page wait for one assembly.
+     *
+     * @return the serialized landing page
+     */
+    public LandingPayload getLanding() {
+        CompletableFuture<LandingPayload> payload = payloads.get(
+                PAYLOAD_KEY,
+                (key, loadExecutor) -> CompletableFuture.supplyAsync(
+                        () -> toPayload(assembleLanding()),
+                        loadExecutor
+                )
+        );
+        try {
+            return payload.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Looks up the parts of the landing page in parallel.
+     *
+     * @return the landing page
+     */
+    public LandingDto assembleLanding() {
+        CompletableFuture<AboutDto> about =
+                CompletableFuture.supplyAsync(aboutService::getAbout, executor);
+        CompletableFuture<List<FeatureDto>> features =
+                CompletableFuture.supplyAsync(featuresService::findAllFeatures, executor);
+        CompletableFuture<List<PlaceDto>> places =
+                CompletableFuture.supplyAsync(() -> placesService.getRandomPlaces(placesCount), executor);
+        CompletableFuture<List<TestimonialDto>> testimonials =
+                CompletableFuture.supplyAsync(
+                        () -> testimonialsService.getRandomApprovedTestimonials(testimonialsCount),
+                        executor
+                );
+        CompletableFuture<PrivacyDto> privacy =
+                CompletableFuture.supplyAsync(privacyService::getPrivacy, executor);
+
+        try {
+            CompletableFuture.allOf(about, features, places, testimonials, privacy).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause
+                    ? cause
+                    : new IllegalStateException("Failed to assemble the landing page", e.getCause());
+        }
+        return new LandingDto(
+                about.join(),
+                features.join(),
+                places.join(),
+                testimonials.join(),
+                privacy.join()
+        );
+    }
+
+    /**
+     * Serializes and compresses the landing page.
+     *
+     * @param landing the landing page
+     * @return the serialized landing page
+     */
+    private LandingPayload toPayload(LandingDto landing) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(landing);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize the landing page", e);
+        }
+
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream stream = new GZIPOutputStream(gzip)) {
+            stream.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compress the landing page", e);
+        }
+
+        return new LandingPayload(json, gzip.toByteArray(), hash(json));
+    }
+
+    private static String hash(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
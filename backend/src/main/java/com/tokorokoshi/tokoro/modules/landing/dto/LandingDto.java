@@ -0,0 +1,46 @@
+package com.tokorokoshi.tokoro.modules.landing.dto;
+
+import com.tokorokoshi.tokoro.modules.about.dto.AboutDto;
+import com.tokorokoshi.tokoro.modules.features.dto.FeatureDto;
+import com.tokorokoshi.tokoro.modules.places.dto.PlaceDto;
+import com.tokorokoshi.tokoro.modules.privacy.dto.PrivacyDto;
+import com.tokorokoshi.tokoro.modules.testimonials.dto.TestimonialDto;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * A DTO for everything the landing page shows
+ */
+@Schema(
+        name = "LandingDto",
+        description = "A DTO for everything the landing page shows"
+)
+public record LandingDto(
+        @Schema(
+                name = "about",
+                description = "The About information, null if there is none"
+        )
+        AboutDto about,
+        @Schema(
+                name = "features",
+                description = "All features"
+        )
+        List<FeatureDto> features,
+        @Schema(
+                name = "places",
+                description = "Random places"
+        )
+        List<PlaceDto> places,
+        @Schema(
+                name = "testimonials",
+                description = "Random testimonials with APPROVED status"
+        )
+        List<TestimonialDto> testimonials,
+        @Schema(
+                name = "privacy",
+                description = "The Privacy information, null if there is none"
+        )
+        PrivacyDto privacy
+) {
+}
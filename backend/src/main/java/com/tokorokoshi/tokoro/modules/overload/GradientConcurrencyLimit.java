@@ -0,0 +1,117 @@
+package com.tokorokoshi.tokoro.modules.overload;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to the measured latency, following the gradient algorithm.
+ * <p>
+ * The limit compares a long-term average of the request latency with the latest sample.
+ * While the latency stays at its usual level the limit grows by about its square root,
+ * allowing a small queue; when the latency rises the gradient drops below 1
+ * and the limit shrinks, so requests are rejected instead of queueing.
+ * </p>
+ */
+public class GradientConcurrencyLimit {
+    private static final double LONG_RTT_SMOOTHING = 0.01;
+    private static final double LIMIT_SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private double limit;
+    private double longRttNanos;
+
+    /**
+     * Creates a limit.
+     *
+     * @param initialLimit starting limit
+     * @param minLimit     the limit never drops below this value
+     * @param maxLimit     the limit never grows above this value
+     */
+    public GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Admits a request if the requests in flight are under its share of the limit.
+     *
+     * @param priority priority of the request
+     * @return true if the request is admitted and must be released with {@link #release(long)}
+     */
+    public boolean tryAcquire(RequestPriority priority) {
+        int allowed = Math.max(1, (int) (getLimit() * priority.getLimitShare()));
+        while (true) {
+            int current = inflight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases an admitted request and updates the limit with its latency.
+     *
+     * @param rttNanos latency of the request
+     */
+    public void release(long rttNanos) {
+        int current = inflight.getAndDecrement();
+        update(rttNanos, current);
+    }
+
+    /**
+     * Releases an admitted request without sampling its latency,
+     * for routes whose latency does not follow the load of the server, such as calls to the AI provider.
+     */
+    public void release() {
+        inflight.decrementAndGet();
+    }
+
+    /**
+     * Updates the limit with a latency sample.
+     *
+     * @param rttNanos latency of the request
+     * @param inflight requests in flight when it completed
+     */
+    private synchronized void update(long rttNanos, int inflight) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+            return;
+        }
+        longRttNanos = longRttNanos * (1 - LONG_RTT_SMOOTHING) + rttNanos * LONG_RTT_SMOOTHING;
+
+        // Do not grow the limit when the server is not using it
+        if (inflight < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, longRttNanos / rttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - LIMIT_SMOOTHING) + newLimit * LIMIT_SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    /**
+     * Returns the current limit.
+     *
+     * @return the limit
+     */
+    public synchronized double getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the number of requests in flight.
+     *
+     * @return the requests in flight
+     */
+    public int getInflight() {
+        return inflight.get();
+    }
+}
@@ -0,0 +1,163 @@
+package com.tokorokoshi.tokoro.modules.overload;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.json.JSONObject;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.CorsConfigurationSource;
+import org.springframework.web.cors.CorsProcessor;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.cors.DefaultCorsProcessor;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Sheds requests when the server is overloaded, before they reach the controllers.
+ * <p>
+ * Requests are admitted against a {@link GradientConcurrencyLimit}. Each route has a
+ * {@link RequestPriority}: cheap public reads may use the whole limit, while expensive
+ * routes are rejected once a smaller share of it is in use. Rejected requests get
+ * a 503 response with a {@code Retry-After} header.
+ * </p>
+ * <p>
+ * The filter runs before the security filters, so it adds the CORS headers to shed responses itself;
+ * otherwise browsers would hide the 503 from the client behind a CORS error.
+ * Low priority routes call the AI provider, whose latency says nothing about the load of the server,
+ * so they are left out of the latency samples of the limit.
+ * </p>
+ */
+public class LoadSheddingFilter extends OncePerRequestFilter {
+    private final GradientConcurrencyLimit limit;
+    private final List<String> highPriorityReads;
+    private final List<String> lowPriorityRoutes;
+    private final long retryAfterSeconds;
+    private final MeterRegistry meterRegistry;
+    private final CorsConfigurationSource corsConfigurationSource;
+    private final CorsProcessor corsProcessor = new DefaultCorsProcessor();
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * Creates the filter and registers its metrics.
+     *
+     * @param limit             the adaptive concurrency limit
+     * @param highPriorityReads path patterns whose GET requests have a high priority
+     * @param lowPriorityRoutes path patterns of requests with a low priority
+     * @param retryAfterSeconds value of the {@code Retry-After} header of shed requests
+     * @param meterRegistry     registry of the metrics
+     * @param corsConfigurationSource CORS settings, applied to shed responses
+     */
+    public LoadSheddingFilter(
+            GradientConcurrencyLimit limit,
+            List<String> highPriorityReads,
+            List<String> lowPriorityRoutes,
+            long retryAfterSeconds,
+            MeterRegistry meterRegistry,
+            CorsConfigurationSource corsConfigurationSource
+    ) {
+        this.limit = limit;
+        this.highPriorityReads = highPriorityReads;
+        this.lowPriorityRoutes = lowPriorityRoutes;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.meterRegistry = meterRegistry;
+        this.corsConfigurationSource = corsConfigurationSource;
+
+        Gauge.builder("http.concurrency.limit", limit, GradientConcurrencyLimit::getLimit)
+                .description("Adaptive limit of concurrent HTTP requests")
+                .register(meterRegistry);
+        Gauge.builder("http.concurrency.inflight", limit, GradientConcurrencyLimit::getInflight)
+                .description("HTTP requests in flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Determines the priority of a request from its route.
+     *
+     * @param request the request
+     * @return the priority
+     */
+    private RequestPriority getPriority(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (lowPriorityRoutes.stream().anyMatch(pattern -> pathMatcher.match(pattern, path))) {
+            return RequestPriority.LOW;
+        }
+        if (
+                HttpMethod.GET.matches(request.getMethod()) &&
+                        highPriorityReads.stream().anyMatch(pattern -> pathMatcher.match(pattern, path))
+        ) {
+            return RequestPriority.HIGH;
+        }
+        return RequestPriority.NORMAL;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        RequestPriority priority = getPriority(request);
+        if (!limit.tryAcquire(priority)) {
+            shed(request, response, priority);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (priority == RequestPriority.LOW) {
+                limit.release();
+            } else {
+                limit.release(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Rejects a request with a 503 response.
+     *
+     * @param request  the request, used to add the CORS headers
+     * @param response the response
+     * @param priority priority of the request, used to tag the metric
+     * @throws IOException if the response cannot be written
+     */
+    private void shed(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            RequestPriority priority
+    ) throws IOException {
+        meterRegistry.counter("http.requests.shed", "priority", priority.name()).increment();
+
+        CorsConfiguration corsConfiguration = corsConfigurationSource.getCorsConfiguration(request);
+        if (corsConfiguration != null) {
+            corsProcessor.processRequest(corsConfiguration, request, response);
+        }
+
+        var jo = new JSONObject();
+        jo.put("message", "Server is overloaded, try again later");
+        jo.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write(jo.toString());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Health checks must answer even under overload,
+        // and preflight requests are cheap and answered by the CORS filter
+        return request.getRequestURI().startsWith("/actuator") || CorsUtils.isPreFlightRequest(request);
+    }
+}
@@ -0,0 +1,38 @@
+package com.tokorokoshi.tokoro.modules.overload;
+
+/**
+ * Priorities of requests when the server is overloaded.
+ * Each priority may use a share of the concurrency limit,
+ * so lower priorities are shed first as the load grows.
+ */
+public enum RequestPriority {
+    /**
+     * Cheap public reads, shed last.
+     */
+    HIGH(1.0),
+
+    /**
+     * Every request without a specific priority.
+     */
+    NORMAL(0.9),
+
+    /**
+     * Expensive requests, shed first.
+     */
+    LOW(0.6);
+
+    private final double limitShare;
+
+    RequestPriority(double limitShare) {
+        this.limitShare = limitShare;
+    }
+
+    /**
+     * Returns the share of the concurrency limit requests of this priority may use.
+     *
+     * @return the share, between 0 and 1
+     */
+    public double getLimitShare() {
+        return limitShare;
+    }
+}
@@ -0,0 +1,110 @@
+package com.tokorokoshi.tokoro.modules.places;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tokorokoshi.tokoro.database.Place;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of places, keyed by place ID.
+ * <p>
+ * Places are only changed by admins, so they are kept until they are written through {@link PlacesService},
+ * which evicts them, or until they expire, which bounds how long a change made by another instance goes unseen.
+ * The cached places hold the storage keys of their pictures, not signed URLs.
+ * </p>
+ * <p>
+ * Places are loaded on a virtual thread of their own, and callers wait for the load outside the cache,
+ * so a slow query never blocks a thread inside a map computation.
+ * </p>
+ */
+@Component
+public class PlaceCache {
+    private final AsyncCache<String, Place> places;
+
+    @Autowired
+    public PlaceCache(
+            @Value("${places.cache.ttl-seconds}") long ttlSeconds,
+            @Value("${places.cache.max-size}") long maxSize,
+            MeterRegistry meterRegistry
+    ) {
+        Executor loadExecutor = task -> Thread.ofVirtual().name("place-load").start(task);
+        this.places = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .executor(loadExecutor)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, places, "places");
+    }
+
+    /**
+     * Returns a place, loading it if it is not cached.
+     * Concurrent loads of the same place are collapsed into one.
+     *
+     * @param id     the place ID.
+     * @param loader loads the place from the database, returning null if it does not exist.
+     * @return the place, or null if it does not exist.
+     */
+    public Place get(String id, Function<String, Place> loader) {
+        return join(places.get(
+                id,
+                (key, executor) -> CompletableFuture.supplyAsync(() -> loader.apply(key), executor)
+        ));
+    }
+
+    /**
+     * Returns the places with the given IDs, loading all the places that are not cached at once.
+     *
+     * @param ids    the place IDs.
+     * @param loader loads the missing places from the database, by ID.
+     * @return the places that exist, by ID.
+     */
+    public Map<String, Place> getAll(
+            Collection<String> ids,
+            Function<Set<? extends String>, Map<String, Place>> loader
+    ) {
+        return join(places.getAll(
+                ids,
+                (keys, executor) -> CompletableFuture.supplyAsync(() -> loader.apply(keys), executor)
+        ));
+    }
+
+    /**
+     * Drops a place after it was written.
+     *
+     * @param id the place ID.
+     */
+    public void evict(String id) {
+        places.synchronous().invalidate(id);
+    }
+
+    /**
+     * Waits for a load, rethrowing its failure as is.
+     *
+     * @param load the load.
+     * @return the loaded value.
+     */
+    private static <T> T join(CompletableFuture<T> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
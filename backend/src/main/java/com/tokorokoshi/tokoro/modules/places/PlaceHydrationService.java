@@ -0,0 +1,44 @@
+package com.tokorokoshi.tokoro.modules.places;
+
+import com.tokorokoshi.tokoro.modules.places.dto.PlaceDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service class that turns lists of place IDs, such as history entries or collection places,
+ * into places with one database query, instead of one query per ID.
+ */
+@Service
+public class PlaceHydrationService {
+    private final PlacesService placesService;
+
+    @Autowired
+    public PlaceHydrationService(PlacesService placesService) {
+        this.placesService = placesService;
+    }
+
+    /**
+     * Loads the places with the given IDs. Each place is loaded and its pictures signed once,
+     * however often its ID occurs.
+     *
+     * @param ids place IDs, may contain duplicates
+     * @return the places in the order of the IDs, including duplicates, with null for places that do not exist
+     */
+    public List<PlaceDto> hydrate(List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, PlaceDto> places = placesService.getByIdArray(ids.stream().distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(PlaceDto::id, Function.identity(), (first, second) -> first));
+        return ids.stream()
+                .map(places::get)
+                .toList();
+    }
+}
@@ -0,0 +1,163 @@
+package com.tokorokoshi.tokoro.modules.places;
+
+import com.tokorokoshi.tokoro.database.Place;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory set of the IDs of every place, used to check that a place exists
+ * without loading it.
+ * <p>
+ * The set is loaded when the index is created and kept in sync with the place writes of this instance.
+ * An ID missing from the set is looked up in the database, so places created by another instance
+ * are found before the next reload; places deleted by another instance are dropped on the next reload,
+ * every {@code places.id-index.refresh-interval-ms}.
+ * </p>
+ * <p>
+ * Places removed while a reload reads the collection are removed from the reloaded set before it replaces
+ * the current one, so a place deleted during the reload does not come back.
+ * </p>
+ */
+@Component
+public class PlaceIdIndex {
+    private static final Logger log = LoggerFactory.getLogger(PlaceIdIndex.class);
+
+    private final MongoTemplate repository;
+    private final Counter hitsCounter;
+    private final Counter fallbackCounter;
+
+    private volatile Set<String> ids = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Guards the removals recorded during a reload and the swap of the set.
+     */
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    /**
+     * IDs removed since the running reload started, null when no reload is running.
+     */
+    private Set<String> removedDuringReload;
+
+    @Autowired
+    public PlaceIdIndex(MongoTemplate repository, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        Gauge.builder("places.id-index.size", this, index -> index.ids.size())
+                .description("Place IDs held in memory")
+                .register(meterRegistry);
+        this.hitsCounter = Counter.builder("places.id-index.lookups")
+                .description("Place existence checks, by whether they were answered from memory")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.fallbackCounter = Counter.builder("places.id-index.lookups")
+                .description("Place existence checks, by whether they were answered from memory")
+                .tag("result", "fallback")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the IDs of every place, reading only the ID of each document.
+     */
+    @PostConstruct
+    @Scheduled(
+            initialDelayString = "${places.id-index.refresh-interval-ms}",
+            fixedDelayString = "${places.id-index.refresh-interval-ms}"
+    )
+    public void reload() {
+        Set<String> removed = ConcurrentHashMap.newKeySet();
+        reloadLock.lock();
+        try {
+            removedDuringReload = removed;
+        } finally {
+            reloadLock.unlock();
+        }
+
+        Set<String> loaded = ConcurrentHashMap.newKeySet();
+        boolean complete = false;
+        try {
+            repository.getCollection(repository.getCollectionName(Place.class))
+                    .find()
+                    .projection(new Document("_id", 1))
+                    .forEach(document -> loaded.add(document.get("_id").toString()));
+            complete = true;
+        } finally {
+            reloadLock.lock();
+            try {
+                // A newer reload took over the recorded removals, so it swaps the set instead
+                if (removedDuringReload == removed) {
+                    removedDuringReload = null;
+                    if (complete) {
+                        loaded.removeAll(removed);
+                        ids = loaded;
+                    }
+                }
+            } finally {
+                reloadLock.unlock();
+            }
+        }
+        log.debug("Loaded {} place IDs", loaded.size());
+    }
+
+    /**
+     * Checks whether a place exists.
+     *
+     * @param id the place ID.
+     * @return true if the place exists.
+     */
+    public boolean contains(String id) {
+        if (id == null || id.isBlank()) {
+            return false;
+        }
+        if (ids.contains(id)) {
+            hitsCounter.increment();
+            return true;
+        }
+
+        fallbackCounter.increment();
+        boolean exists = repository.exists(Query.query(Criteria.where("_id").is(id)), Place.class);
+        if (exists) {
+            ids.add(id);
+        }
+        return exists;
+    }
+
+    /**
+     * Records a saved place.
+     *
+     * @param id the place ID.
+     */
+    public void add(String id) {
+        ids.add(id);
+    }
+
+    /**
+     * Records a deleted place.
+     *
+     * @param id the place ID.
+     */
+    public void remove(String id) {
+        reloadLock.lock();
+        try {
+            ids.remove(id);
+            if (removedDuringReload != null) {
+                removedDuringReload.add(id);
+            }
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+}
@@ -11,6 +11,8 @@ import java.util.List;
 @Mapper(componentModel = "spring")
 public interface PlaceMapper {
     @Mapping(target = "pictures", expression = "java(new java.util.ArrayList<>())")
+    @Mapping(target = "enrichmentStatus", ignore = true)
+    @Mapping(target = "contentFingerprint", ignore = true)
     @Mapping(target = "location.coordinate", expression = "java(new org.springframework.data.mongodb.core.geo.GeoJsonPoint(locationDto.coordinate().longitude(), locationDto.coordinate().latitude()))")
     Place toPlaceSchema(CreateUpdatePlaceDto placeDto);
 
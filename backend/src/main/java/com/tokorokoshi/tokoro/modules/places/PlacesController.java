@@ -17,12 +17,13 @@ import com.tokorokoshi.tokoro.security.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import org.apache.coyote.BadRequestException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.logging.Logger;
@@ -167,11 +168,18 @@ public class PlacesController {
             )
             @RequestBody
             SearchDto body
-    ) throws BadRequestException {
+    ) {
         Response<TagsDto> tagsResponse =
                 tagsService.generateTags(body.prompt(), 0);
         if (tagsResponse.isRefusal()) {
-            throw new BadRequestException(tagsResponse.getRefusal());
+            // Keep the status of the refusal, e.g. 413 for an over-budget prompt
+            Integer refusalStatus = tagsResponse.getRefusalStatus();
+            throw new ResponseStatusException(
+                    refusalStatus != null
+                            ? HttpStatus.valueOf(refusalStatus)
+                            : HttpStatus.BAD_REQUEST,
+                    tagsResponse.getRefusal()
+            );
         }
 
         List<TagDto> tags = List.of(tagsResponse.getContent().tags());
@@ -267,9 +275,15 @@ public class PlacesController {
             String id,
             @Parameter(description = "The place to update", required = true)
             @ModelAttribute
-            CreateUpdatePlaceDto place
+            CreateUpdatePlaceDto place,
+            @Parameter(
+                    description = "Regenerate the tags even if the place content did not change",
+                    example = "false"
+            )
+            @RequestParam(defaultValue = "false")
+            boolean forceRetag
     ) {
-        PlaceDto updatedPlace = this.placesService.updatePlace(id, place);
+        PlaceDto updatedPlace = this.placesService.updatePlace(id, place, forceRetag);
         if (updatedPlace == null) {
             throw new NotFoundException("Place not found");
         }
@@ -1,15 +1,21 @@
 package com.tokorokoshi.tokoro.modules.places;
 
 import com.tokorokoshi.tokoro.database.HashTag;
+import com.tokorokoshi.tokoro.database.Location;
 import com.tokorokoshi.tokoro.database.Place;
+import com.tokorokoshi.tokoro.helpers.RandomPool;
 import com.tokorokoshi.tokoro.modules.file.FileStorageService;
 import com.tokorokoshi.tokoro.modules.places.dto.CoordinateDto;
 import com.tokorokoshi.tokoro.modules.places.dto.CreateUpdatePlaceDto;
 import com.tokorokoshi.tokoro.modules.places.dto.PlaceDto;
+import com.tokorokoshi.tokoro.modules.places.enrichment.TagEnrichmentQueue;
 import com.tokorokoshi.tokoro.modules.tags.TagsService;
 import com.tokorokoshi.tokoro.modules.tags.dto.TagDto;
 import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -19,31 +25,116 @@ import org.springframework.data.mongodb.core.aggregation.*;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
 
 import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
 
 @Service
 public class PlacesService {
+    private static final Logger log = LoggerFactory.getLogger(PlacesService.class);
+
     private final MongoTemplate repository;
     private final PlaceMapper placeMapper;
     private final FileStorageService fileStorageService;
     private final TagsService tagsService;
+    private final TagEnrichmentQueue tagEnrichmentQueue;
+    private final PlaceIdIndex placeIdIndex;
+    private final PlaceCache placeCache;
+    private final TaskScheduler taskScheduler;
+
+    /**
+     * Random places for the landing page, with pictures signed for {@code places.random-pool.url-ttl-seconds}.
+     * The pool is reloaded on draw once it is older than {@code places.random-pool.max-age-seconds},
+     * so the URLs it hands out never expire while they are shown.
+     */
+    private final RandomPool<PlaceDto> randomPlaces;
+
+    @Value("${places.random-pool.size}")
+    private int randomPoolSize;
+
+    @Value("${places.random-pool.url-ttl-seconds}")
+    private int randomPoolUrlTtlSeconds;
 
     @Autowired
     public PlacesService(
             MongoTemplate repository,
             PlaceMapper placeMapper,
             FileStorageService fileStorageService,
-            TagsService tagsService
+            TagsService tagsService,
+            TagEnrichmentQueue tagEnrichmentQueue,
+            PlaceIdIndex placeIdIndex,
+            PlaceCache placeCache,
+            TaskScheduler taskScheduler,
+            @Value("${places.random-pool.max-age-seconds}") long randomPoolMaxAgeSeconds
     ) {
         this.repository = repository;
         this.placeMapper = placeMapper;
         this.fileStorageService = fileStorageService;
         this.tagsService = tagsService;
+        this.tagEnrichmentQueue = tagEnrichmentQueue;
+        this.placeIdIndex = placeIdIndex;
+        this.placeCache = placeCache;
+        this.taskScheduler = taskScheduler;
+        this.randomPlaces = new RandomPool<>(
+                this::loadRandomPlaceCandidates,
+                Duration.ofSeconds(randomPoolMaxAgeSeconds)
+        );
+    }
+
+    /**
+     * Builds the description of a place the tags are generated from.
+     * Only the fields that affect the tags are included.
+     *
+     * @param place Place to describe
+     * @return the place description
+     */
+    private static String getTaggingContent(Place place) {
+        Location location = place.location();
+        String address = location == null
+                ? ""
+                : "%s, %s, %s".formatted(location.address(), location.city(), location.country());
+        String coordinate = location == null || location.coordinate() == null
+                ? ""
+                : " (%s, %s)".formatted(location.coordinate().getX(), location.coordinate().getY());
+        return "name: %s\ndescription: %s\nlocation: %s%s\ncategory: %s"
+                .formatted(
+                        place.name(),
+                        place.description(),
+                        address,
+                        coordinate,
+                        place.categoryId()
+                );
+    }
+
+    /**
+     * Computes the fingerprint of the content the tags of a place are generated from.
+     *
+     * @param place Place to fingerprint
+     * @return the hex-encoded SHA-256 hash of the tagging content
+     */
+    private static String getContentFingerprint(Place place) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(
+                    getTaggingContent(place).getBytes(StandardCharsets.UTF_8)
+            );
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
@@ -56,7 +147,7 @@ public class PlacesService {
         Objects.requireNonNull(place, "Place cannot be null");
 
         var response = tagsService.generateTags(
-                "Generate tags for place: " + place
+                "Generate tags for place:\n" + getTaggingContent(place)
         );
         if (response.isRefusal()) {
             throw new IllegalStateException(
@@ -87,6 +178,49 @@ public class PlacesService {
         return false;
     }
 
+    /**
+     * Saves a place, deleting its newly uploaded pictures if the save fails.
+     *
+     * @param place        place to save
+     * @param uploadedKeys keys of the pictures uploaded for this write
+     * @return the saved place
+     */
+    private Place saveOrRollback(Place place, List<String> uploadedKeys) {
+        try {
+            return repository.save(place);
+        } catch (RuntimeException e) {
+            log.warn("Failed to save place, removing {} uploaded pictures", uploadedKeys.size());
+            deletePictures(uploadedKeys);
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes pictures from storage in parallel.
+     * Failures are logged, since a leftover object does not affect the place.
+     *
+     * @param keys keys of the pictures to delete
+     * @return a future completed once every delete has finished
+     */
+    private CompletableFuture<Void> deletePictures(List<String> keys) {
+        return CompletableFuture.allOf(keys.stream()
+                .map(this::deletePicture)
+                .toArray(CompletableFuture[]::new));
+    }
+
+    private CompletableFuture<Boolean> deletePicture(String key) {
+        try {
+            return fileStorageService.deleteFile(key).exceptionally(ex -> {
+                log.warn("Failed to delete picture {}", key, ex);
+                return false;
+            });
+        } catch (RuntimeException ex) {
+            // Rejected before it was submitted, e.g. by a saturated storage bulkhead
+            log.warn("Failed to delete picture {}", key, ex);
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
     /**
      * Get a place with pictures URLs.
      */
@@ -97,8 +231,103 @@ public class PlacesService {
         return placeMapper.toPlaceDto(place.withPictures(picturesUrls));
     }
 
+    /**
+     * Get a place with pictures URLs valid for the given time.
+     */
+    private PlaceDto getPlaceWithPicturesUrls(Place place, int expirationInSeconds) {
+        List<String> picturesUrls = place.pictures().stream().map(
+                key -> fileStorageService.generateSignedUrl(key, expirationInSeconds).join()
+        ).toList();
+        return placeMapper.toPlaceDto(place.withPictures(picturesUrls));
+    }
+
+    /**
+     * Samples the candidates of the random places pool.
+     *
+     * @return up to {@code places.random-pool.size} random places
+     */
+    private List<PlaceDto> loadRandomPlaceCandidates() {
+        AggregationResults<Place> results = repository.aggregate(
+                newAggregation(Aggregation.sample(randomPoolSize)),
+                Place.class,
+                Place.class
+        );
+        return results.getMappedResults().stream()
+                .map(place -> getPlaceWithPicturesUrls(place, randomPoolUrlTtlSeconds))
+                .toList();
+    }
+
+    /**
+     * Replaces the random places pool with a new sample,
+     * well before the signed picture URLs of the current one expire.
+     */
+    @Scheduled(fixedDelayString = "${places.random-pool.refresh-interval-ms}")
+    public void refreshRandomPlaces() {
+        try {
+            randomPlaces.refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh the random places pool", e);
+        }
+    }
+
+    /**
+     * Refreshes the random places pool in the background after a place was written.
+     */
+    private void refreshRandomPlacesLater() {
+        taskScheduler.schedule(this::refreshRandomPlaces, Instant.now());
+    }
+
+    /**
+     * Generates tags for a stored place and saves them.
+     * Called by the tag enrichment worker; does nothing if the place was deleted.
+     * The tags are not saved if the place content changed in the meantime,
+     * since a newer task will regenerate them.
+     *
+     * @param id place ID
+     * @throws IllegalStateException if the tags could not be generated
+     */
+    public void enrichPlaceTags(String id) {
+        Place place = repository.findById(id, Place.class);
+        if (place == null) return;
+
+        List<HashTag> tags = generateTagsForPlace(place);
+        repository.updateFirst(
+                Query.query(Criteria
+                        .where("_id").is(id)
+                        .and("contentFingerprint").is(place.contentFingerprint())),
+                new Update()
+                        .set("tags", tags)
+                        .set("enrichmentStatus", Place.EnrichmentStatus.ENRICHED),
+                Place.class
+        );
+        placeCache.evict(id);
+    }
+
+    /**
+     * Marks a place whose tags could not be generated.
+     * The place is left alone if its content changed since the task was queued,
+     * since a newer task will generate its tags.
+     *
+     * @param id                 place ID
+     * @param contentFingerprint fingerprint of the content the task was queued for,
+     *                           null for tasks queued before fingerprints were recorded
+     */
+    public void markEnrichmentFailed(String id, String contentFingerprint) {
+        Criteria criteria = Criteria.where("_id").is(id);
+        if (contentFingerprint != null) {
+            criteria = criteria.and("contentFingerprint").is(contentFingerprint);
+        }
+        repository.updateFirst(
+                Query.query(criteria),
+                new Update().set("enrichmentStatus", Place.EnrichmentStatus.FAILED),
+                Place.class
+        );
+        placeCache.evict(id);
+    }
+
     /**
      * Saves a new place with optional pictures.
+     * Tags are generated in the background; the place is returned as pending enrichment.
      *
      * @param place place data
      * @return the saved place
@@ -111,40 +340,45 @@ public class PlacesService {
             throw new IllegalArgumentException("Invalid file type");
         }
 
-        // Map DTO to Place schema
+        // Map DTO to Place schema; tags are generated later by the enrichment worker.
+        // The place is prepared before anything is uploaded, so an invalid place leaves nothing behind
         var placeSchema = placeMapper.toPlaceSchema(place);
-
-        // Process picture files if provided
-        List<String> pictureKeys = fileStorageService
-                .uploadFiles(
-                        place.pictures() != null
-                                ? List.of(place.pictures())
-                                : List.of(),
-                        "places"
-                )
-                .join();
-
-        // Create a new Place instance with the uploaded picture keys.
+        placeSchema = placeSchema
+                .withTags(List.of())
+                .withEnrichmentStatus(Place.EnrichmentStatus.PENDING)
+                .withContentFingerprint(getContentFingerprint(placeSchema));
+
+        // Upload the pictures in parallel and create a new Place instance with their keys
+        List<String> pictureKeys = fileStorageService.uploadFiles(
+                place.pictures() != null
+                        ? List.of(place.pictures())
+                        : List.of(),
+                "places"
+        ).join();
         placeSchema = placeSchema.withPictures(pictureKeys);
 
-        // Update tags
-        placeSchema = placeSchema.withTags(generateTagsForPlace(placeSchema));
-
         // Save to MongoDB
-        var savedPlace = repository.save(placeSchema);
+        var savedPlace = saveOrRollback(placeSchema, pictureKeys);
+        placeIdIndex.add(savedPlace.id());
+        tagEnrichmentQueue.enqueue(savedPlace.id(), savedPlace.contentFingerprint());
+        refreshRandomPlacesLater();
         return getPlaceWithPicturesUrls(savedPlace);
     }
 
     /**
      * Updates an existing place with optional pictures.
+     * Tags are regenerated only if the content they are generated from changed,
+     * and the previous tags are kept until the regenerated ones are ready.
      *
-     * @param id    place ID
-     * @param place place data
+     * @param id         place ID
+     * @param place      place data
+     * @param forceRetag whether to regenerate the tags even if the content did not change
      * @return the updated place
      */
     public PlaceDto updatePlace(
             String id,
-            CreateUpdatePlaceDto place
+            CreateUpdatePlaceDto place,
+            boolean forceRetag
     ) {
         Place existingPlace = repository.findById(id, Place.class);
         if (existingPlace == null) return null;
@@ -154,34 +388,46 @@ public class PlacesService {
             throw new IllegalArgumentException("Invalid file type");
         }
 
-        // For update, we assume replacing pictures with new ones.
-        // Remove existing pictures from storage if there are any new pictures.
-        if (!existingPlace.pictures().isEmpty() && place.pictures() != null) {
-            for (String key : existingPlace.pictures()) {
-                fileStorageService.deleteFile(key);
-            }
-        }
-
-        // Map DTO to Place schema (for update)
+        // Map DTO to Place schema (for update).
+        // The place is prepared before anything is uploaded, so an invalid place leaves nothing behind
         var placeSchema = placeMapper.toPlaceSchema(place).withId(id);
 
-        // Process new picture files if provided
-        List<String> pictureKeys = place.pictures() == null
-            ? existingPlace.pictures()
-            : fileStorageService
-                .uploadFiles(List.of(place.pictures()), "places")
-                .join();
+        // Regenerate the tags only if the content they depend on changed
+        String fingerprint = getContentFingerprint(placeSchema);
+        boolean retag = forceRetag
+                || !fingerprint.equals(existingPlace.contentFingerprint());
 
-        // For update, we assume replacing pictures with new ones.
+        // Keep the current tags while new ones are generated in the background
+        placeSchema = placeSchema
+                .withTags(existingPlace.tags())
+                .withContentFingerprint(fingerprint)
+                .withEnrichmentStatus(retag
+                        ? Place.EnrichmentStatus.PENDING
+                        : existingPlace.enrichmentStatus());
+
+        // For update, we assume replacing pictures with new ones, uploaded in parallel.
+        List<String> pictureKeys = place.pictures() == null
+                ? existingPlace.pictures()
+                : fileStorageService.uploadFiles(List.of(place.pictures()), "places").join();
         placeSchema = pictureKeys.isEmpty()
                 ? placeSchema.withPictures(placeSchema.pictures())
                 : placeSchema.withPictures(pictureKeys);
 
-        // Update tags
-        placeSchema = placeSchema.withTags(generateTagsForPlace(placeSchema));
-
         // Update the place in MongoDB
-        var savedPlace = repository.save(placeSchema);
+        var savedPlace = saveOrRollback(
+                placeSchema,
+                place.pictures() != null ? pictureKeys : List.of()
+        );
+        placeCache.evict(id);
+        refreshRandomPlacesLater();
+        if (retag) {
+            tagEnrichmentQueue.enqueue(savedPlace.id(), savedPlace.contentFingerprint());
+        }
+
+        // Remove the replaced pictures only once the place no longer references them
+        if (place.pictures() != null) {
+            deletePictures(existingPlace.pictures()).join();
+        }
         return getPlaceWithPicturesUrls(savedPlace);
     }
 
@@ -192,11 +438,21 @@ public class PlacesService {
      * @return the place
      */
     public PlaceDto getPlaceById(String id) {
-        var place = repository.findById(id, Place.class);
+        var place = placeCache.get(id, key -> repository.findById(key, Place.class));
         if (place == null) return null;
         return getPlaceWithPicturesUrls(place);
     }
 
+    /**
+     * Checks whether a place exists, without loading it.
+     *
+     * @param id place ID
+     * @return true if the place exists
+     */
+    public boolean placeExists(String id) {
+        return placeIdIndex.contains(id);
+    }
+
     /**
      * Retrieves paginated places.
      *
@@ -215,21 +471,28 @@ public class PlacesService {
     }
 
     /**
-     * Retrieves places by an array of IDs using an aggregation query.
+     * Retrieves places by an array of IDs.
+     * Cached places are served from the cache; the others are loaded with one query.
      *
      * @param ids List of place IDs
-     * @return List of places
+     * @return List of the places that exist, in the order of their first ID
      */
     public List<PlaceDto> getByIdArray(List<String> ids) {
         if (ids == null || ids.isEmpty()) {
             return new ArrayList<>();
         }
 
-        MatchOperation matchStage = Aggregation.match(Criteria.where("_id").in(ids));
-        Aggregation aggregation = Aggregation.newAggregation(matchStage);
-        AggregationResults<Place> results = repository.aggregate(aggregation, Place.class, Place.class);
-
-        return results.getMappedResults().stream()
+        Map<String, Place> places = placeCache.getAll(ids, missing -> {
+            Map<String, Place> loaded = new HashMap<>();
+            repository.find(Query.query(Criteria.where("_id").in(missing)), Place.class)
+                    .forEach(place -> loaded.put(place.id(), place));
+            return loaded;
+        });
+
+        return ids.stream()
+                .distinct()
+                .map(places::get)
+                .filter(Objects::nonNull)
                 .map(this::getPlaceWithPicturesUrls)
                 .toList();
     }
@@ -245,30 +508,25 @@ public class PlacesService {
             throw new IllegalArgumentException("Place not found for id: " + id);
         }
 
-        // Remove files from storage
-        for (String key : place.pictures()) {
-            fileStorageService.deleteFile(key).join();
-        }
-
         // Remove place from database
         repository.remove(place);
+        placeIdIndex.remove(id);
+        placeCache.evict(id);
+        refreshRandomPlacesLater();
+        tagEnrichmentQueue.discard(id);
+
+        // Remove files from storage
+        deletePictures(place.pictures()).join();
     }
 
     /**
-     * Gets random places.
+     * Gets random places, drawn from the in-memory pool without querying the database.
      *
-     * @param count number of places to get
+     * @param count number of places to get, at most {@code places.random-pool.size}
      * @return the random places
      */
     public List<PlaceDto> getRandomPlaces(int count) {
-        AggregationResults<Place> results = repository.aggregate(
-                newAggregation(Aggregation.sample(count)),
-                Place.class,
-                Place.class
-        );
-        return results.getMappedResults().stream()
-                .map(this::getPlaceWithPicturesUrls)
-                .toList();
+        return randomPlaces.sample(count);
     }
 
     /**
@@ -314,6 +572,7 @@ public class PlacesService {
 
     /**
      * Gets places that have at least one of the specified tags.
+     * Places whose tags are not generated yet are matched by name instead.
      *
      * @param tags tags to search for
      * @return places that contain at least one of the specified tags
@@ -329,10 +588,22 @@ public class PlacesService {
                 .toList();
 
         // Create OR criteria for matching any of the tags
-        List<Criteria> matchers = tags.stream()
+        List<Criteria> matchers = new ArrayList<>(tags.stream()
                 .map(tag -> Criteria.where("tags")
                         .elemMatch(Criteria.where("name").is(tag.name())))
-                .toList();
+                .toList());
+
+        // Keep places awaiting enrichment searchable by their name
+        matchers.add(new Criteria().andOperator(
+                Criteria.where("enrichmentStatus").in(
+                        Place.EnrichmentStatus.PENDING,
+                        Place.EnrichmentStatus.FAILED
+                ),
+                new Criteria().orOperator(tagNames.stream()
+                        .map(name -> Criteria.where("name")
+                                .regex(Pattern.quote(name), "i"))
+                        .toList())
+        ));
         Criteria criteria = new Criteria().orOperator(matchers);
         MatchOperation matchStage = Aggregation.match(criteria);
 
@@ -0,0 +1,52 @@
+package com.tokorokoshi.tokoro.modules.places.detail;
+
+import com.tokorokoshi.tokoro.modules.error.NotFoundException;
+import com.tokorokoshi.tokoro.modules.places.detail.dto.PlaceDetailDto;
+import com.tokorokoshi.tokoro.security.SecurityUtils;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+@Tag(name = "Places", description = "API for managing places")
+@RestController
+@RequestMapping("/places")
+public class PlaceDetailController {
+    private final PlaceDetailService placeDetailService;
+
+    @Autowired
+    public PlaceDetailController(PlaceDetailService placeDetailService) {
+        this.placeDetailService = placeDetailService;
+    }
+
+    @Operation(
+            summary = "Get the page of a place",
+            description = "Returns the place with the given ID, the summary of its ratings, its newest reviews " +
+                    "and the collections of the current user that contain it. " +
+                    "Parts that could not be loaded in time are null and listed as unavailable"
+    )
+    @GetMapping(value = "/{id}/detail", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity<PlaceDetailDto> getPlaceDetail(
+            @Parameter(
+                    description = "The ID of the place to get",
+                    required = true,
+                    example = "60f1b3b3b3b3b3b3b3b3b3b3"
+            )
+            @PathVariable
+            String id
+    ) {
+        String userId = SecurityUtils.findAuthenticatedUserId().orElse(null);
+        PlaceDetailDto placeDetail = placeDetailService.getPlaceDetail(id, userId);
+        if (placeDetail == null) {
+            throw new NotFoundException("Place not found");
+        }
+        return ResponseEntity.ok(placeDetail);
+    }
+}
@@ -0,0 +1,196 @@
+package com.tokorokoshi.tokoro.modules.places.detail;
+
+import com.tokorokoshi.tokoro.configuration.ExecutorConfiguration;
+import com.tokorokoshi.tokoro.modules.favorites.CollectionsService;
+import com.tokorokoshi.tokoro.modules.places.PlacesService;
+import com.tokorokoshi.tokoro.modules.places.detail.dto.PlaceDetailDto;
+import com.tokorokoshi.tokoro.modules.places.dto.PlaceDto;
+import com.tokorokoshi.tokoro.modules.ratings.RatingsService;
+import com.tokorokoshi.tokoro.modules.ratings.dto.RatingSummaryDto;
+import com.tokorokoshi.tokoro.modules.reviews.ReviewsService;
+import com.tokorokoshi.tokoro.modules.reviews.dto.ReviewDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Service class that assembles the page of a place, so it needs one request instead of four.
+ * <p>
+ * The place, the summary of its ratings, its newest reviews and the collections of the current user
+ * that contain it are looked up in parallel on the composite executor, each with its own deadline.
+ * A part that fails or misses its deadline is left out and named in the {@code unavailable} list
+ * instead of failing the whole page; a part that misses its deadline is also interrupted,
+ * so it does not keep a thread busy after the page was sent.
+ * </p>
+ */
+@Service
+public class PlaceDetailService {
+    private static final Logger log = LoggerFactory.getLogger(PlaceDetailService.class);
+
+    private final PlacesService placesService;
+    private final RatingsService ratingsService;
+    private final ReviewsService reviewsService;
+    private final CollectionsService collectionsService;
+    private final ExecutorService executor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${place-detail.reviews-count}")
+    private int reviewsCount;
+
+    @Value("${place-detail.place-timeout-ms}")
+    private long placeTimeoutMs;
+
+    @Value("${place-detail.rating-timeout-ms}")
+    private long ratingTimeoutMs;
+
+    @Value("${place-detail.reviews-timeout-ms}")
+    private long reviewsTimeoutMs;
+
+    @Value("${place-detail.collections-timeout-ms}")
+    private long collectionsTimeoutMs;
+
+    @Autowired
+    public PlaceDetailService(
+            PlacesService placesService,
+            RatingsService ratingsService,
+            ReviewsService reviewsService,
+            CollectionsService collectionsService,
+            @Qualifier(ExecutorConfiguration.COMPOSITE_EXECUTOR) ExecutorService executor,
+            MeterRegistry meterRegistry
+    ) {
+        this.placesService = placesService;
+        this.ratingsService = ratingsService;
+        this.reviewsService = reviewsService;
+        this.collectionsService = collectionsService;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Assembles the page of a place.
+     *
+     * @param placeId the place ID
+     * @param userId  the Auth0 user ID of the current user, null if no user is authenticated
+     * @return the page of the place, or null if the place does not exist
+     */
+    public PlaceDetailDto getPlaceDetail(String placeId, String userId) {
+        if (!placesService.placeExists(placeId)) {
+            return null;
+        }
+
+        Part<PlaceDto> place = part(
+                () -> placesService.getPlaceById(placeId),
+                placeTimeoutMs
+        );
+        Part<RatingSummaryDto> rating = part(
+                () -> ratingsService.getPlaceRatingSummary(placeId),
+                ratingTimeoutMs
+        );
+        Part<Page<ReviewDto>> reviews = part(
+                () -> reviewsService.getPlaceReviews(
+                        placeId,
+                        PageRequest.of(0, reviewsCount, Sort.by(Sort.Direction.DESC, "createdAt"))
+                ),
+                reviewsTimeoutMs
+        );
+        Part<List<UUID>> collections = userId == null
+                ? new Part<>(CompletableFuture.completedFuture(null), System.nanoTime())
+                : part(
+                        () -> collectionsService.getCollectionIdsContainingPlace(userId, placeId),
+                        collectionsTimeoutMs
+                );
+
+        List<String> unavailable = new ArrayList<>();
+        PlaceDto placeDto = join("place", placeId, place, unavailable);
+        if (placeDto == null && unavailable.isEmpty()) {
+            // Deleted since the existence check
+            rating.task().cancel(true);
+            reviews.task().cancel(true);
+            collections.task().cancel(true);
+            return null;
+        }
+        RatingSummaryDto ratingDto = join("rating", placeId, rating, unavailable);
+        Page<ReviewDto> reviewsPage = join("reviews", placeId, reviews, unavailable);
+        List<UUID> collectionIds = join("collections", placeId, collections, unavailable);
+
+        return new PlaceDetailDto(
+                placeDto,
+                ratingDto,
+                reviewsPage == null ? null : reviewsPage.getContent(),
+                reviewsPage == null ? null : reviewsPage.getTotalElements(),
+                collectionIds,
+                unavailable
+        );
+    }
+
+    /**
+     * A part of the page being looked up.
+     *
+     * @param task     the lookup
+     * @param deadline when the page stops waiting for the part, in {@link System#nanoTime()} units
+     */
+    private record Part<T>(Future<T> task, long deadline) {
+    }
+
+    /**
+     * Starts looking up a part of the page.
+     *
+     * @param lookup    looks up the part
+     * @param timeoutMs how long the page waits for the part, from now
+     * @return the part
+     */
+    private <T> Part<T> part(Callable<T> lookup, long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            return new Part<>(executor.submit(lookup), deadline);
+        } catch (RejectedExecutionException e) {
+            return new Part<>(CompletableFuture.failedFuture(e), deadline);
+        }
+    }
+
+    /**
+     * Waits for a part of the page until its deadline, and interrupts it if it misses the deadline.
+     *
+     * @param name        the name of the part
+     * @param placeId     the place ID, to log
+     * @param part        the part
+     * @param unavailable the names of the parts that could not be loaded, to add the part to if it failed
+     * @return the part, or null if it failed or missed its deadline
+     */
+    private <T> T join(String name, String placeId, Part<T> part, List<String> unavailable) {
+        try {
+            return part.task().get(Math.max(0, part.deadline() - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            part.task().cancel(true);
+            log.warn("Timed out loading the {} of place {}", name, placeId);
+        } catch (ExecutionException e) {
+            log.warn("Failed to load the {} of place {}", name, placeId, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            part.task().cancel(true);
+            log.warn("Interrupted while loading the {} of place {}", name, placeId);
+        }
+        meterRegistry.counter("places.detail.unavailable", "part", name).increment();
+        unavailable.add(name);
+        return null;
+    }
+}
@@ -0,0 +1,52 @@
+package com.tokorokoshi.tokoro.modules.places.detail.dto;
+
+import com.tokorokoshi.tokoro.modules.places.dto.PlaceDto;
+import com.tokorokoshi.tokoro.modules.ratings.dto.RatingSummaryDto;
+import com.tokorokoshi.tokoro.modules.reviews.dto.ReviewDto;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A DTO for everything the page of a place shows
+ */
+@Schema(
+        name = "PlaceDetailDto",
+        description = "A DTO for everything the page of a place shows"
+)
+public record PlaceDetailDto(
+        @Schema(
+                name = "place",
+                description = "The place, null if it could not be loaded in time"
+        )
+        PlaceDto place,
+        @Schema(
+                name = "rating",
+                description = "The summary of the ratings of the place, null if it could not be loaded in time"
+        )
+        RatingSummaryDto rating,
+        @Schema(
+                name = "reviews",
+                description = "The newest reviews of the place, null if they could not be loaded in time"
+        )
+        List<ReviewDto> reviews,
+        @Schema(
+                name = "reviewsCount",
+                description = "The number of reviews of the place, null if they could not be loaded in time"
+        )
+        Long reviewsCount,
+        @Schema(
+                name = "collectionIds",
+                description = "The IDs of the collections of the current user that contain the place, " +
+                        "null if no user is authenticated or they could not be loaded in time"
+        )
+        List<UUID> collectionIds,
+        @Schema(
+                name = "unavailable",
+                description = "The parts that could not be loaded in time: " +
+                        "place, rating, reviews or collections"
+        )
+        List<String> unavailable
+) {
+}
@@ -1,5 +1,6 @@
 package com.tokorokoshi.tokoro.modules.places.dto;
 
+import com.tokorokoshi.tokoro.database.Place;
 import com.tokorokoshi.tokoro.modules.tags.dto.TagDto;
 import io.swagger.v3.oas.annotations.media.Schema;
 
@@ -52,6 +53,11 @@ public record PlaceDto(
                 name = "rating",
                 description = "The rating of the place"
         )
-        double rating
+        double rating,
+        @Schema(
+                name = "enrichmentStatus",
+                description = "Whether the tags of the place are generated yet"
+        )
+        Place.EnrichmentStatus enrichmentStatus
 ) {
 }
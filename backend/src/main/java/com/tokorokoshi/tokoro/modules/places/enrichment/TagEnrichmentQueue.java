@@ -0,0 +1,168 @@
+package com.tokorokoshi.tokoro.modules.places.enrichment;
+
+import com.tokorokoshi.tokoro.database.TagEnrichmentTask;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Durable work queue of tag generation jobs, stored in MongoDB.
+ * <p>
+ * Tasks are claimed atomically with a lease, so several application instances
+ * can drain the same queue, and a task whose worker died is picked up again
+ * once its lease expires.
+ * </p>
+ */
+@Service
+public class TagEnrichmentQueue {
+    private final MongoTemplate repository;
+
+    @Value("${places.enrichment.max-attempts}")
+    private int maxAttempts;
+
+    @Value("${places.enrichment.lease-seconds}")
+    private long leaseSeconds;
+
+    @Value("${places.enrichment.backoff-seconds}")
+    private long backoffSeconds;
+
+    @Autowired
+    public TagEnrichmentQueue(MongoTemplate repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Creates the indexes used to claim tasks.
+     */
+    @PostConstruct
+    void ensureIndexes() {
+        var indexOps = repository.indexOps(TagEnrichmentTask.class);
+        indexOps.ensureIndex(new Index()
+                .on("status", Sort.Direction.ASC)
+                .on("nextAttemptAt", Sort.Direction.ASC)
+                .named("status_next_attempt"));
+        indexOps.ensureIndex(new Index()
+                .on("placeId", Sort.Direction.ASC)
+                .named("placeId"));
+    }
+
+    /**
+     * Queues tag generation for a place.
+     * If the place already has a queued task, it is reused and made due immediately.
+     *
+     * @param placeId            ID of the place to generate tags for
+     * @param contentFingerprint fingerprint of the place content the tags are generated from
+     */
+    public void enqueue(String placeId, String contentFingerprint) {
+        Instant now = Instant.now();
+        Query query = Query.query(Criteria
+                .where("placeId").is(placeId)
+                .and("status").is(TagEnrichmentTask.Status.QUEUED));
+        Update update = new Update()
+                .set("nextAttemptAt", now)
+                .set("attempts", 0)
+                .set("contentFingerprint", contentFingerprint)
+                .unset("lastError")
+                .setOnInsert("createdAt", now);
+        repository.upsert(query, update, TagEnrichmentTask.class);
+    }
+
+    /**
+     * Claims the next due task, leasing it to the caller.
+     *
+     * @return the claimed task, or null if no task is due
+     */
+    public TagEnrichmentTask claimNext() {
+        Instant now = Instant.now();
+        Criteria due = new Criteria().orOperator(
+                Criteria.where("status").is(TagEnrichmentTask.Status.QUEUED)
+                        .and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(TagEnrichmentTask.Status.IN_PROGRESS)
+                        .and("lockedUntil").lte(now)
+        );
+        Query query = Query.query(due)
+                .with(Sort.by(Sort.Direction.ASC, "nextAttemptAt"));
+        Update update = new Update()
+                .set("status", TagEnrichmentTask.Status.IN_PROGRESS)
+                .set("lockedUntil", now.plusSeconds(leaseSeconds))
+                .inc("attempts", 1);
+        return repository.findAndModify(
+                query,
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                TagEnrichmentTask.class
+        );
+    }
+
+    /**
+     * Removes a finished task from the queue.
+     *
+     * @param task the finished task
+     */
+    public void complete(TagEnrichmentTask task) {
+        repository.remove(
+                Query.query(Criteria.where("_id").is(task.id())),
+                TagEnrichmentTask.class
+        );
+    }
+
+    /**
+     * Reschedules a failed task with exponential backoff,
+     * or marks it as failed when it has no attempts left.
+     *
+     * @param task  the failed task
+     * @param error the failure reason
+     * @return true if the task will be retried, false if it was given up
+     */
+    public boolean retry(TagEnrichmentTask task, String error) {
+        Query query = Query.query(Criteria.where("_id").is(task.id()));
+        if (task.attempts() >= maxAttempts) {
+            repository.updateFirst(
+                    query,
+                    new Update()
+                            .set("status", TagEnrichmentTask.Status.FAILED)
+                            .set("lastError", error)
+                            .unset("lockedUntil"),
+                    TagEnrichmentTask.class
+            );
+            return false;
+        }
+
+        Duration backoff = Duration.ofSeconds(
+                backoffSeconds << Math.min(task.attempts() - 1, 10)
+        );
+        repository.updateFirst(
+                query,
+                new Update()
+                        .set("status", TagEnrichmentTask.Status.QUEUED)
+                        .set("nextAttemptAt", Instant.now().plus(backoff))
+                        .set("lastError", error)
+                        .unset("lockedUntil"),
+                TagEnrichmentTask.class
+        );
+        return true;
+    }
+
+    /**
+     * Drops every task of a place, e.g. when the place is deleted.
+     *
+     * @param placeId ID of the place
+     */
+    public void discard(String placeId) {
+        repository.remove(
+                Query.query(Criteria.where("placeId").is(placeId)),
+                TagEnrichmentTask.class
+        );
+    }
+}
@@ -0,0 +1,117 @@
+package com.tokorokoshi.tokoro.modules.places.enrichment;
+
+import com.tokorokoshi.tokoro.database.TagEnrichmentTask;
+import com.tokorokoshi.tokoro.modules.places.PlacesService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Background worker that drains the {@link TagEnrichmentQueue}
+ * and stores the generated tags on the places.
+ * <p>
+ * The worker is created eagerly, since nothing injects it and the application
+ * runs with lazy initialization.
+ * </p>
+ * <p>
+ * Generating tags takes one AI call per place, so the queue is drained on a thread of the worker.
+ * The scheduled poll only starts a drain, and never waits for it,
+ * so the other scheduled jobs are not held up behind AI calls.
+ * </p>
+ */
+@Component
+@Lazy(false)
+public class TagEnrichmentWorker {
+    private static final Logger log = LoggerFactory.getLogger(TagEnrichmentWorker.class);
+
+    private final TagEnrichmentQueue queue;
+    private final PlacesService placesService;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("tag-enrichment").factory()
+    );
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    @Value("${places.enrichment.batch-size}")
+    private int batchSize;
+
+    @Autowired
+    public TagEnrichmentWorker(TagEnrichmentQueue queue, PlacesService placesService) {
+        this.queue = queue;
+        this.placesService = placesService;
+    }
+
+    /**
+     * Starts processing a batch of due tasks, unless the previous batch is still being processed.
+     */
+    @Scheduled(
+            initialDelayString = "${places.enrichment.poll-interval-ms}",
+            fixedDelayString = "${places.enrichment.poll-interval-ms}"
+    )
+    public void pollQueue() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                processQueue();
+            } catch (RuntimeException e) {
+                log.warn("Failed to process the tag enrichment queue", e);
+            } finally {
+                draining.set(false);
+            }
+        });
+    }
+
+    /**
+     * Stops processing; leased tasks are claimed again once their lease expires.
+     */
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Processes up to a batch of due tasks.
+     */
+    void processQueue() {
+        for (int i = 0; i < batchSize; i++) {
+            TagEnrichmentTask task = queue.claimNext();
+            if (task == null) {
+                return;
+            }
+            process(task);
+        }
+    }
+
+    /**
+     * Generates tags for the place of a task and settles the task.
+     *
+     * @param task the claimed task
+     */
+    private void process(TagEnrichmentTask task) {
+        try {
+            placesService.enrichPlaceTags(task.placeId());
+            queue.complete(task);
+        } catch (Exception e) {
+            log.warn(
+                    "Tag enrichment attempt {} failed for place {}",
+                    task.attempts(),
+                    task.placeId(),
+                    e
+            );
+            if (!queue.retry(task, e.getMessage())) {
+                log.error("Giving up tag enrichment for place {}", task.placeId());
+                placesService.markEnrichmentFailed(task.placeId(), task.contentFingerprint());
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.tokorokoshi.tokoro.modules.privacy;
 
+import com.tokorokoshi.tokoro.helpers.ContentSnapshot;
 import com.tokorokoshi.tokoro.modules.error.NotFoundException;
 import com.tokorokoshi.tokoro.modules.privacy.dto.CreateUpdatePrivacyDto;
 import com.tokorokoshi.tokoro.modules.privacy.dto.PrivacyDto;
@@ -30,17 +31,21 @@ public class PrivacyController {
 
     /**
      * Retrieves the Privacy information.
+     * Answers a conditional request for an unchanged version with 304 Not Modified.
      *
      * @return the Privacy information
      */
     @GetMapping
     @Operation(summary = "Get Privacy Information")
     public ResponseEntity<PrivacyDto> getPrivacy() {
-        PrivacyDto privacyDto = privacyService.getPrivacy();
-        if (privacyDto == null) {
+        ContentSnapshot.Version<PrivacyDto> privacy = privacyService.getPrivacySnapshot();
+        if (privacy.content() == null) {
             throw new NotFoundException("Privacy information not found");
         }
-        return ResponseEntity.ok(privacyDto);
+        return ResponseEntity.ok()
+                .eTag(privacy.eTag())
+                .lastModified(privacy.lastModified())
+                .body(privacy.content());
     }
 
     @Operation(
@@ -1,20 +1,37 @@
 package com.tokorokoshi.tokoro.modules.privacy;
 
 import com.tokorokoshi.tokoro.database.Privacy;
+import com.tokorokoshi.tokoro.helpers.ContentSnapshot;
 import com.tokorokoshi.tokoro.modules.privacy.dto.CreateUpdatePrivacyDto;
 import com.tokorokoshi.tokoro.modules.privacy.dto.PrivacyDto;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
 
+/**
+ * Service class for the Privacy information.
+ * <p>
+ * The Privacy information is served from an in-memory snapshot, rebuilt after every write of this instance
+ * and every {@code content-snapshot.refresh-interval-ms}, which picks up writes of other instances.
+ * The bean is created eagerly, so the snapshot is loaded at startup.
+ * </p>
+ */
 @Service
+@Lazy(false)
 public class PrivacyService {
+    private static final Logger log = LoggerFactory.getLogger(PrivacyService.class);
 
     private final MongoTemplate repository;
     private final PrivacyMapper privacyMapper;
+    private final ContentSnapshot<PrivacyDto> snapshot = new ContentSnapshot<>(this::loadPrivacy);
 
     @Autowired
     public PrivacyService(
@@ -25,14 +42,46 @@ public class PrivacyService {
         this.privacyMapper = privacyMapper;
     }
 
+    /**
+     * Loads the Privacy document for the snapshot.
+     */
+    private PrivacyDto loadPrivacy() {
+        Optional<Privacy> privacyOptional = Optional.ofNullable(repository.findOne(new Query(), Privacy.class));
+        return privacyOptional.map(privacyMapper::toPrivacyDto).orElse(null);
+    }
+
+    /**
+     * Rebuilds the Privacy snapshot, keeping the current one if that fails.
+     */
+    @PostConstruct
+    @Scheduled(
+            initialDelayString = "${content-snapshot.refresh-interval-ms}",
+            fixedDelayString = "${content-snapshot.refresh-interval-ms}"
+    )
+    public void refreshSnapshot() {
+        try {
+            snapshot.refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh the Privacy snapshot", e);
+        }
+    }
+
     /**
      * Retrieves the single Privacy document.
      *
      * @return the Privacy document
      */
     public PrivacyDto getPrivacy() {
-        Optional<Privacy> privacyOptional = Optional.ofNullable(repository.findOne(new Query(), Privacy.class));
-        return privacyOptional.map(privacyMapper::toPrivacyDto).orElse(null);
+        return snapshot.get().content();
+    }
+
+    /**
+     * Retrieves the current version of the Privacy snapshot, to serve it with conditional request headers.
+     *
+     * @return the current version, whose content is null if there is no Privacy document
+     */
+    public ContentSnapshot.Version<PrivacyDto> getPrivacySnapshot() {
+        return snapshot.get();
     }
 
     /**
@@ -47,6 +96,7 @@ public class PrivacyService {
 
         // Save to MongoDB
         Privacy savedPrivacy = repository.save(privacy);
+        refreshSnapshot();
         return privacyMapper.toPrivacyDto(savedPrivacy);
     }
 
@@ -68,6 +118,7 @@ public class PrivacyService {
 
         // Save to MongoDB
         Privacy savedPrivacy = repository.save(privacy);
+        refreshSnapshot();
         return privacyMapper.toPrivacyDto(savedPrivacy);
     }
 
@@ -78,6 +129,7 @@ public class PrivacyService {
         Optional<Privacy> privacyOptional = Optional.ofNullable(repository.findOne(new Query(), Privacy.class));
         if (privacyOptional.isPresent()) {
             repository.remove(privacyOptional.get());
+            refreshSnapshot();
         } else {
             throw new IllegalArgumentException("Privacy document not found");
         }
@@ -3,11 +3,17 @@ package com.tokorokoshi.tokoro.modules.ratings;
 import com.tokorokoshi.tokoro.database.Rating;
 import com.tokorokoshi.tokoro.modules.ratings.dto.CreateUpdateRatingDto;
 import com.tokorokoshi.tokoro.modules.ratings.dto.RatingDto;
+import com.tokorokoshi.tokoro.modules.ratings.dto.RatingSummaryDto;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
@@ -36,6 +42,16 @@ public class RatingsService {
         this.ratingMapper = ratingMapper;
     }
 
+    /**
+     * Creates the index used to find and summarize the ratings of a place.
+     */
+    @PostConstruct
+    void ensureIndexes() {
+        repository.indexOps(Rating.class).ensureIndex(new Index()
+                .on("placeId", Sort.Direction.ASC)
+                .named("placeId"));
+    }
+
     /**
      * Saves a rating.
      *
@@ -88,6 +104,31 @@ public class RatingsService {
         return new PageImpl<>(dtos, pageable, total);
     }
 
+    /**
+     * Summarizes the ratings of a place in the database, without loading them.
+     *
+     * @param placeId the place id
+     * @return the average and number of the ratings of the place
+     */
+    public RatingSummaryDto getPlaceRatingSummary(String placeId) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("placeId").is(placeId)),
+                Aggregation.group("placeId")
+                        .avg("value").as("average")
+                        .count().as("count")
+        );
+        Document summary = repository.aggregate(aggregation, Rating.class, Document.class)
+                .getUniqueMappedResult();
+        if (summary == null) {
+            return new RatingSummaryDto(placeId, 0, 0);
+        }
+        return new RatingSummaryDto(
+                placeId,
+                summary.get("average", Number.class).doubleValue(),
+                summary.get("count", Number.class).longValue()
+        );
+    }
+
     /**
      * Updates a rating by its id.
      *
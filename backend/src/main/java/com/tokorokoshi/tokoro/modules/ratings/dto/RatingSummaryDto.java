@@ -0,0 +1,29 @@
+package com.tokorokoshi.tokoro.modules.ratings.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * A DTO for the ratings of a place
+ */
+@Schema(
+        name = "RatingSummaryDto",
+        description = "A DTO for the ratings of a place"
+)
+public record RatingSummaryDto(
+        @Schema(
+                name = "placeId",
+                description = "The ID of the place"
+        )
+        String placeId,
+        @Schema(
+                name = "average",
+                description = "The average value of the ratings, 0 if there are none"
+        )
+        double average,
+        @Schema(
+                name = "count",
+                description = "The number of ratings"
+        )
+        long count
+) {
+}
@@ -3,11 +3,14 @@ package com.tokorokoshi.tokoro.modules.reviews;
 import com.tokorokoshi.tokoro.database.Review;
 import com.tokorokoshi.tokoro.modules.reviews.dto.CreateUpdateReviewDto;
 import com.tokorokoshi.tokoro.modules.reviews.dto.ReviewDto;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
@@ -29,6 +32,17 @@ public class ReviewsService {
         this.reviewMapper = reviewMapper;
     }
 
+    /**
+     * Creates the index used to list the reviews of a place, newest first.
+     */
+    @PostConstruct
+    void ensureIndexes() {
+        repository.indexOps(Review.class).ensureIndex(new Index()
+                .on("placeId", Sort.Direction.ASC)
+                .on("createdAt", Sort.Direction.DESC)
+                .named("place_createdAt"));
+    }
+
     /**
      * Saves a new review.
      *
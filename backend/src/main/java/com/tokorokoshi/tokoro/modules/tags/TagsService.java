@@ -1,27 +1,37 @@
 package com.tokorokoshi.tokoro.modules.tags;
 
 import com.tokorokoshi.tokoro.modules.ai.AiClientService;
+import com.tokorokoshi.tokoro.modules.ai.TokenCounter;
 import com.tokorokoshi.tokoro.helpers.Response;
 import com.tokorokoshi.tokoro.modules.tags.dto.TagsDto;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 
 @Component
 public class TagsService {
     private static final String MODEL = "gpt-4o-mini";
-    private static final int TOKENS_LIMIT = 2000;
     private static final double TEMPERATURE = 1.0;
 
     private final AiClientService clientService;
+    private final TokenCounter tokenCounter;
+
+    @Value("${tags.max-input-tokens}")
+    private int maxInputTokens;
+
+    @Value("${tags.max-output-tokens}")
+    private int maxOutputTokens;
 
     @Autowired
-    public TagsService(AiClientService clientService) {
+    public TagsService(AiClientService clientService, TokenCounter tokenCounter) {
         this.clientService = clientService;
+        this.tokenCounter = tokenCounter;
     }
 
     /**
      * Generates tags for the given message.
+     * Messages longer than the input token limit are truncated.
      *
      * @param message        message to generate tags for
      * @param conversationId conversation ID
@@ -33,6 +43,8 @@ public class TagsService {
         String conversationId,
         double temperature
     ) {
+        message = tokenCounter.truncate(message, maxInputTokens, TagsService.MODEL);
+
         boolean isInappropriate = clientService.isPromptValid(message);
         if (isInappropriate) {
             return Response.<TagsDto>builder()
@@ -46,7 +58,7 @@ public class TagsService {
             TagsDto.class,
             conversationId,
             TagsService.MODEL,
-            TagsService.TOKENS_LIMIT,
+            maxOutputTokens,
             temperature
         );
     }
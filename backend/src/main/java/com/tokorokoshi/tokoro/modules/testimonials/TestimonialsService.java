@@ -1,35 +1,67 @@
 package com.tokorokoshi.tokoro.modules.testimonials;
 
 import com.tokorokoshi.tokoro.database.Testimonial;
+import com.tokorokoshi.tokoro.helpers.RandomPool;
 import com.tokorokoshi.tokoro.modules.testimonials.dto.CreateUpdateTestimonialDto;
 import com.tokorokoshi.tokoro.modules.testimonials.dto.TestimonialDto;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
 import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class TestimonialsService {
+    private static final Logger log = LoggerFactory.getLogger(TestimonialsService.class);
 
     private final MongoTemplate repository;
     private final TestimonialMapper testimonialMapper;
+    private final TaskScheduler taskScheduler;
+
+    /**
+     * Approved testimonials for the landing page.
+     */
+    private final RandomPool<TestimonialDto> randomApprovedTestimonials =
+            new RandomPool<>(this::loadRandomApprovedCandidates);
+
+    @Value("${testimonials.random-pool.size}")
+    private int randomPoolSize;
 
     @Autowired
     public TestimonialsService(
             MongoTemplate repository,
-            TestimonialMapper testimonialMapper
+            TestimonialMapper testimonialMapper,
+            TaskScheduler taskScheduler
     ) {
         this.repository = repository;
         this.testimonialMapper = testimonialMapper;
+        this.taskScheduler = taskScheduler;
+    }
+
+    /**
+     * Creates the index used to find testimonials by status.
+     */
+    @PostConstruct
+    void ensureIndexes() {
+        repository.indexOps(Testimonial.class).ensureIndex(new Index()
+                .on("status", Sort.Direction.ASC)
+                .named("status"));
     }
 
     /**
@@ -91,6 +123,9 @@ public class TestimonialsService {
         }
 
         repository.remove(testimonial);
+        if (testimonial.status() == Testimonial.Status.APPROVED) {
+            refreshRandomApprovedTestimonialsLater();
+        }
     }
 
     /**
@@ -136,6 +171,9 @@ public class TestimonialsService {
         // Set the new status to PENDING
         testimonial = testimonial.withStatus(Testimonial.Status.PENDING);
         Testimonial savedTestimonial = repository.save(testimonial);
+        if (existingTestimonial.status() == Testimonial.Status.APPROVED) {
+            refreshRandomApprovedTestimonialsLater();
+        }
 
         return testimonialMapper.toTestimonialDto(savedTestimonial);
     }
@@ -154,6 +192,9 @@ public class TestimonialsService {
         Testimonial testimonial = existingTestimonial.withStatus(status);
 
         repository.save(testimonial);
+        if (existingTestimonial.status() == Testimonial.Status.APPROVED || status == Testimonial.Status.APPROVED) {
+            refreshRandomApprovedTestimonialsLater();
+        }
     }
 
     /**
@@ -180,22 +221,52 @@ public class TestimonialsService {
     }
 
     /**
-     * Retrieves random testimonials with APPROVED status.
+     * Retrieves random testimonials with APPROVED status,
+     * drawn from the in-memory pool without querying the database.
      *
-     * @param count number of random testimonials to retrieve
+     * @param count number of random testimonials to retrieve, at most {@code testimonials.random-pool.size}
      * @return list of random testimonials
      */
     public List<TestimonialDto> getRandomApprovedTestimonials(int count) {
-        // Define an aggregation pipeline to match testimonials with APPROVED status and sample a specified number
+        return randomApprovedTestimonials.sample(count);
+    }
+
+    /**
+     * Samples the candidates of the random approved testimonials pool.
+     *
+     * @return up to {@code testimonials.random-pool.size} random approved testimonials
+     */
+    private List<TestimonialDto> loadRandomApprovedCandidates() {
+        // Define an aggregation pipeline to match testimonials with APPROVED status and sample the pool
         Aggregation aggregation = Aggregation.newAggregation(
                 Aggregation.match(Criteria.where("status").is(Testimonial.Status.APPROVED)),
-                Aggregation.sample(count)
+                Aggregation.sample(randomPoolSize)
         );
 
         AggregationResults<Testimonial> results = repository.aggregate(aggregation, Testimonial.class, Testimonial.class);
 
         return results.getMappedResults().stream()
                 .map(testimonialMapper::toTestimonialDto)
-                .collect(Collectors.toList());
+                .toList();
+    }
+
+    /**
+     * Replaces the random approved testimonials pool with a new sample.
+     */
+    @Scheduled(fixedDelayString = "${testimonials.random-pool.refresh-interval-ms}")
+    public void refreshRandomApprovedTestimonials() {
+        try {
+            randomApprovedTestimonials.refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh the random testimonials pool", e);
+        }
+    }
+
+    /**
+     * Refreshes the random approved testimonials pool in the background
+     * after a testimonial was changed in a way that may affect it.
+     */
+    private void refreshRandomApprovedTestimonialsLater() {
+        taskScheduler.schedule(this::refreshRandomApprovedTestimonials, Instant.now());
     }
 }
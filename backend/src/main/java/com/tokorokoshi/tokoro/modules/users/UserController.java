@@ -1,7 +1,9 @@
 package com.tokorokoshi.tokoro.modules.users;
 
+import com.tokorokoshi.tokoro.helpers.CursorPageDto;
 import com.tokorokoshi.tokoro.helpers.PaginationDto;
 import com.tokorokoshi.tokoro.modules.error.NotFoundException;
+import com.tokorokoshi.tokoro.modules.exceptions.auth0.RoleFetchException;
 import com.tokorokoshi.tokoro.modules.exceptions.auth0.UserDeleteException;
 import com.tokorokoshi.tokoro.modules.exceptions.auth0.UserFetchException;
 import com.tokorokoshi.tokoro.modules.exceptions.auth0.UserUpdateException;
@@ -10,6 +12,8 @@ import com.tokorokoshi.tokoro.security.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -346,8 +350,42 @@ public class UserController {
                     this.pagedResourcesAssembler.toModel(users)
             );
             return ResponseEntity.ok(pagination);
-        } catch (UserFetchException e) {
-            logger.severe(String.format("User fetch exception: %s", e.getMessage()));
+        } catch (RoleFetchException e) {
+            logger.severe(String.format("Role fetch exception: %s", e.getMessage()));
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @Operation(
+            summary = "Search users",
+            description = "Returns the users whose email, name or nickname starts with the search text, "
+                    + "one page after another"
+    )
+    @GetMapping(
+            path = "/search",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPageDto<UserDto>> searchUsers(
+            @Parameter(description = "The text to search for; all users are returned if omitted")
+            @RequestParam(required = false)
+            String query,
+            @Parameter(description = "The cursor returned as next by the previous page")
+            @RequestParam(required = false)
+            String after,
+            @Parameter(
+                    description = "The number of items per page, from 1 to 100",
+                    example = "20"
+            )
+            @RequestParam(defaultValue = "20")
+            @Min(1)
+            @Max(100)
+            int size
+    ) {
+        try {
+            return ResponseEntity.ok(userService.searchUsers(query, after, size));
+        } catch (RoleFetchException e) {
+            logger.severe(String.format("Role fetch exception: %s", e.getMessage()));
             return ResponseEntity.internalServerError().build();
         }
     }
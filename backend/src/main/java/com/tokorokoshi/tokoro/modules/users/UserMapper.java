@@ -1,6 +1,7 @@
 package com.tokorokoshi.tokoro.modules.users;
 
 import com.auth0.json.mgmt.users.User;
+import com.tokorokoshi.tokoro.database.UserDirectoryEntry;
 import com.tokorokoshi.tokoro.modules.users.dto.UserDto;
 import org.mapstruct.*;
 
@@ -12,4 +13,14 @@ import org.mapstruct.*;
 public interface UserMapper {
     @Mapping(source = "id", target = "userId")
     UserDto toDto(User user);
+
+    @Mapping(source = "id", target = "userId")
+    @Mapping(target = "values", ignore = true)
+    @Mapping(target = "roles", ignore = true)
+    @Mapping(target = "permissions", ignore = true)
+    UserDto toDto(UserDirectoryEntry entry);
+
+    @Mapping(target = "searchTerms", ignore = true)
+    @Mapping(target = "syncedAt", ignore = true)
+    UserDirectoryEntry toDirectoryEntry(User user);
 }
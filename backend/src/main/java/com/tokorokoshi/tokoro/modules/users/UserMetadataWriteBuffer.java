@@ -0,0 +1,243 @@
+package com.tokorokoshi.tokoro.modules.users;
+
+import com.tokorokoshi.tokoro.modules.auth0.Auth0ManagementService;
+import com.tokorokoshi.tokoro.modules.users.directory.UserDirectoryService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer of the Auth0 user metadata.
+ * <p>
+ * Auth0 merges a metadata update into the top-level keys of the user metadata,
+ * so the updates of a user made within {@code users.metadata-buffer.window-ms}
+ * are merged, later values winning, and sent as one Management API call.
+ * Only one call per user is in flight at a time, so updates reach Auth0 in order.
+ * Reads overlay the updates that have not reached Auth0 yet.
+ * </p>
+ * <p>
+ * A failed update is merged under the newer ones and tried again,
+ * up to {@code users.metadata-buffer.max-attempts} times.
+ * Everything still buffered is sent when the application shuts down.
+ * </p>
+ */
+@Component
+public class UserMetadataWriteBuffer {
+    private static final Logger log = LoggerFactory.getLogger(UserMetadataWriteBuffer.class);
+
+    private final Auth0ManagementService auth0ManagementService;
+    private final UserDirectoryService userDirectoryService;
+    private final TaskScheduler taskScheduler;
+    private final Duration window;
+    private final int maxAttempts;
+    private final Counter writesCounter;
+    private final Counter flushesCounter;
+    private final Counter droppedCounter;
+
+    /**
+     * Guards the maps below; Auth0 is only called outside of it.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Map<String, Object>> pending = new HashMap<>();
+    private final Map<String, Map<String, Object>> inFlight = new HashMap<>();
+    private final Map<String, Integer> failedAttempts = new HashMap<>();
+    private volatile boolean closed;
+
+    @Autowired
+    public UserMetadataWriteBuffer(
+            Auth0ManagementService auth0ManagementService,
+            UserDirectoryService userDirectoryService,
+            TaskScheduler taskScheduler,
+            @Value("${users.metadata-buffer.window-ms}") long windowMs,
+            @Value("${users.metadata-buffer.max-attempts}") int maxAttempts,
+            MeterRegistry meterRegistry
+    ) {
+        this.auth0ManagementService = auth0ManagementService;
+        this.userDirectoryService = userDirectoryService;
+        this.taskScheduler = taskScheduler;
+        this.window = Duration.ofMillis(windowMs);
+        this.maxAttempts = maxAttempts;
+
+        this.writesCounter = Counter.builder("users.metadata-buffer.writes")
+                .description("User metadata updates accepted by the buffer")
+                .register(meterRegistry);
+        this.flushesCounter = Counter.builder("users.metadata-buffer.flushes")
+                .description("Merged user metadata updates sent to Auth0")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("users.metadata-buffer.dropped")
+                .description("Merged user metadata updates dropped after failing every attempt")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Buffers an update of the user metadata.
+     *
+     * @param userId   the Auth0 user ID.
+     * @param metadata the keys to set; a null value removes the key.
+     */
+    public void write(String userId, Map<String, Object> metadata) {
+        boolean schedule;
+        lock.lock();
+        try {
+            schedule = !pending.containsKey(userId) && !inFlight.containsKey(userId);
+            pending.computeIfAbsent(userId, id -> new LinkedHashMap<>()).putAll(metadata);
+        } finally {
+            lock.unlock();
+        }
+        writesCounter.increment();
+
+        if (closed) {
+            flush(userId);
+        } else if (schedule) {
+            scheduleFlush(userId);
+        }
+    }
+
+    /**
+     * Applies the buffered updates of a user to their metadata as last read from Auth0.
+     *
+     * @param userId   the Auth0 user ID.
+     * @param metadata the user metadata read from Auth0, may be null.
+     * @return the user metadata including the buffered updates, or the given metadata if there are none.
+     */
+    public Map<String, Object> overlay(String userId, Map<String, Object> metadata) {
+        lock.lock();
+        try {
+            Map<String, Object> sending = inFlight.get(userId);
+            Map<String, Object> waiting = pending.get(userId);
+            if (sending == null && waiting == null) {
+                return metadata;
+            }
+
+            Map<String, Object> merged = metadata == null ? new HashMap<>() : new HashMap<>(metadata);
+            apply(merged, sending);
+            apply(merged, waiting);
+            return merged;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies an update to user metadata the way Auth0 does.
+     *
+     * @param metadata the user metadata to change.
+     * @param patch    the update, may be null.
+     */
+    private static void apply(Map<String, Object> metadata, Map<String, Object> patch) {
+        if (patch == null) {
+            return;
+        }
+        patch.forEach((key, value) -> {
+            if (value == null) {
+                metadata.remove(key);
+            } else {
+                metadata.put(key, value);
+            }
+        });
+    }
+
+    /**
+     * Sends every buffered update before the application shuts down.
+     */
+    @PreDestroy
+    void flushAll() {
+        closed = true;
+        List<String> userIds;
+        lock.lock();
+        try {
+            userIds = List.copyOf(pending.keySet());
+        } finally {
+            lock.unlock();
+        }
+        userIds.forEach(this::flush);
+    }
+
+    private void scheduleFlush(String userId) {
+        taskScheduler.schedule(() -> flush(userId), Instant.now().plus(window));
+    }
+
+    /**
+     * Sends the buffered updates of a user as one call, unless a call for the user is already in flight,
+     * in which case that call sends them once it completes.
+     *
+     * @param userId the Auth0 user ID.
+     */
+    private void flush(String userId) {
+        while (true) {
+            Map<String, Object> patch;
+            lock.lock();
+            try {
+                if (inFlight.containsKey(userId)) {
+                    return;
+                }
+                patch = pending.remove(userId);
+                if (patch == null) {
+                    return;
+                }
+                inFlight.put(userId, patch);
+            } finally {
+                lock.unlock();
+            }
+
+            boolean sent = false;
+            try {
+                auth0ManagementService.updateUserMetadata(userId, patch);
+                flushesCounter.increment();
+                sent = true;
+            } catch (RuntimeException e) {
+                log.warn("Failed to update the metadata of user {}", userId, e);
+            }
+
+            boolean more;
+            lock.lock();
+            try {
+                inFlight.remove(userId);
+                if (sent) {
+                    failedAttempts.remove(userId);
+                } else if (failedAttempts.merge(userId, 1, Integer::sum) < maxAttempts) {
+                    // Newer updates win over the failed one
+                    Map<String, Object> retry = new LinkedHashMap<>(patch);
+                    Map<String, Object> newer = pending.get(userId);
+                    if (newer != null) {
+                        retry.putAll(newer);
+                    }
+                    pending.put(userId, retry);
+                } else {
+                    failedAttempts.remove(userId);
+                    droppedCounter.increment();
+                    log.error("Dropped a metadata update of user {} after {} attempts: {}",
+                            userId, maxAttempts, patch.keySet());
+                }
+                more = pending.containsKey(userId);
+            } finally {
+                lock.unlock();
+            }
+
+            if (sent) {
+                userDirectoryService.refresh(userId);
+            }
+            if (!more) {
+                return;
+            }
+            if (!closed) {
+                scheduleFlush(userId);
+                return;
+            }
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package com.tokorokoshi.tokoro.modules.users;
 
 import com.auth0.json.mgmt.users.User;
+import com.tokorokoshi.tokoro.helpers.CursorPageDto;
 import com.tokorokoshi.tokoro.modules.auth0.Auth0ManagementService;
-import com.tokorokoshi.tokoro.modules.exceptions.auth0.Auth0ManagementException;
+import com.tokorokoshi.tokoro.modules.exceptions.auth0.RoleFetchException;
 import com.tokorokoshi.tokoro.modules.exceptions.auth0.UserDeleteException;
 import com.tokorokoshi.tokoro.modules.exceptions.auth0.UserFetchException;
 import com.tokorokoshi.tokoro.modules.exceptions.auth0.UserUpdateException;
 import com.tokorokoshi.tokoro.modules.file.FileStorageService;
+import com.tokorokoshi.tokoro.modules.users.directory.UserDirectoryService;
 import com.tokorokoshi.tokoro.modules.users.dto.UserDto;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -24,16 +26,22 @@ public class UserService {
     private final Auth0ManagementService auth0ManagementService;
     private final FileStorageService fileStorageService;
     private final UserMapper userMapper;
+    private final UserDirectoryService userDirectoryService;
+    private final UserMetadataWriteBuffer userMetadataWriteBuffer;
 
     @Autowired
     public UserService(
             Auth0ManagementService auth0ManagementService,
             FileStorageService fileStorageService,
-            UserMapper userMapper
+            UserMapper userMapper,
+            UserDirectoryService userDirectoryService,
+            UserMetadataWriteBuffer userMetadataWriteBuffer
     ) {
         this.auth0ManagementService = auth0ManagementService;
         this.fileStorageService = fileStorageService;
         this.userMapper = userMapper;
+        this.userDirectoryService = userDirectoryService;
+        this.userMetadataWriteBuffer = userMetadataWriteBuffer;
     }
 
     /**
@@ -44,38 +52,70 @@ public class UserService {
      * @throws UserFetchException if there is an error during the fetching process.
      */
     public UserDto getUser(String userId) {
+        User user = auth0ManagementService.getUser(userId);
         return userMapper
-                .toDto(auth0ManagementService.getUser(userId))
+                .toDto(user)
+                .withUserMetadata(userMetadataWriteBuffer.overlay(userId, user.getUserMetadata()))
                 .withRoles(auth0ManagementService.getUserRoles(userId))
 //                .withPermissions(auth0ManagementService.getUserPermissions(userId));
                 .withPermissions(List.of());
     }
 
     /**
-     * Fetches all users
+     * Fetches a page of users from the local user directory.
      *
-     * @throws UserFetchException if there is an error during the fetching process.
+     * @param pageable the page to fetch.
+     * @return the page of users, with the total number of users.
+     * @throws RoleFetchException if the roles of the users cannot be fetched.
      */
     public Page<UserDto> getUsers(Pageable pageable) {
-        List<UserDto> users = auth0ManagementService.getUsers(pageable).stream()
-                .map(user -> userMapper.toDto(user)
-                        .withRoles(auth0ManagementService.getUserRoles(user.getId()))
-//                        .withPermissions(auth0ManagementService.getUserPermissions(user.getId()))
+        Page<UserDto> users = userDirectoryService.getUsers(pageable);
+        return new PageImpl<>(withRoles(users.getContent()), pageable, users.getTotalElements());
+    }
+
+    /**
+     * Searches users by the start of their email, name or nickname, one page after another.
+     *
+     * @param search the text to search for, or null to list all users.
+     * @param after  the user ID the previous page ended with, or null for the first page.
+     * @param size   the number of users per page.
+     * @return the page of users.
+     * @throws RoleFetchException if the roles of the users cannot be fetched.
+     */
+    public CursorPageDto<UserDto> searchUsers(String search, String after, int size) {
+        CursorPageDto<UserDto> users = userDirectoryService.searchUsers(search, after, size);
+        return new CursorPageDto<>(withRoles(users.payload()), users.next(), users.total());
+    }
+
+    /**
+     * Adds the roles to users, resolving them all at once.
+     *
+     * @param users the users.
+     * @return the users with their roles.
+     */
+    private List<UserDto> withRoles(List<UserDto> users) {
+        Map<String, List<String>> roles = auth0ManagementService.getUsersRoles(
+                users.stream().map(UserDto::userId).toList()
+        );
+        return users.stream()
+                .map(user -> user
+                        .withRoles(roles.get(user.userId()))
+//                        .withPermissions(auth0ManagementService.getUserPermissions(user.userId()))
                         .withPermissions(List.of())
                 )
                 .toList();
-        return new PageImpl<>(users, pageable, users.size());
     }
 
     /**
      * Updates the user metadata for a given user.
+     * The update is buffered and merged with the other updates of the user made shortly after,
+     * so it reaches Auth0 with a short delay; reads through this service see it at once.
      *
      * @param userId   the Auth0 user ID of the user whose metadata will be updated.
      * @param metadata a map containing the metadata to be updated.
-     * @throws UserUpdateException if there is an error during the update process.
      */
     public void updateUserMetadata(String userId, Map<String, Object> metadata) {
-        auth0ManagementService.updateUserMetadata(userId, metadata);
+        userMetadataWriteBuffer.write(userId, metadata);
     }
 
     /**
@@ -86,6 +126,7 @@ public class UserService {
      */
     public void deleteUser(String userId) {
         auth0ManagementService.deleteUser(userId);
+        userDirectoryService.remove(userId);
     }
 
     /**
@@ -98,6 +139,7 @@ public class UserService {
      */
     public void updateUserFirstNameAndLastName(String userId, String firstName, String lastName) {
         auth0ManagementService.updateUserFirstNameAndLastName(userId, firstName, lastName);
+        userDirectoryService.refresh(userId);
     }
 
     /**
@@ -119,8 +161,7 @@ public class UserService {
         }
 
         // Retrieve the existing avatar key from user metadata
-        User user = auth0ManagementService.getUser(userId);
-        Map<String, Object> userMetadata = user.getUserMetadata();
+        Map<String, Object> userMetadata = getUserMetadata(userId);
         String existingAvatarKey = (String) userMetadata.get("avatar_key");
 
         // Delete the existing avatar if it exists
@@ -141,6 +182,7 @@ public class UserService {
 
         // Update the user's avatar URL in Auth0
         auth0ManagementService.updateUserAvatar(userId, newAvatarUrl);
+        userDirectoryService.refresh(userId);
     }
 
     /**
@@ -148,7 +190,7 @@ public class UserService {
      *
      * @param userId the Auth0 user ID of the user to check if they are blocked.
      * @return true if the user is blocked, false otherwise.
-     * @throws Auth0ManagementException if there is an error fetching the user from Auth0.
+     * @throws UserFetchException if there is an error fetching the user from Auth0.
      */
     public Boolean isUserBlocked(String userId) {
         return auth0ManagementService.isUserBlocked(userId);
@@ -162,6 +204,7 @@ public class UserService {
      */
     public void blockUser(String userId) {
         auth0ManagementService.blockUser(userId);
+        userDirectoryService.refresh(userId);
     }
 
     /**
@@ -172,18 +215,19 @@ public class UserService {
      */
     public void unblockUser(String userId) {
         auth0ManagementService.unblockUser(userId);
+        userDirectoryService.refresh(userId);
     }
 
     /**
      * Fetches the user's metadata.
      *
      * @param userId the Auth0 user ID of the user.
-     * @return a map containing the user's metadata.
+     * @return a map containing the user's metadata, including the updates not sent to Auth0 yet.
      * @throws UserFetchException if there is an error during the fetching process.
      */
     public Map<String, Object> getUserMetadata(String userId) {
         User user = auth0ManagementService.getUser(userId);
-        return user.getUserMetadata();
+        return userMetadataWriteBuffer.overlay(userId, user.getUserMetadata());
     }
 
     /**
@@ -195,6 +239,7 @@ public class UserService {
      */
     public void updateUserNickname(String userId, String nickname) {
         auth0ManagementService.updateUserNickname(userId, nickname);
+        userDirectoryService.refresh(userId);
     }
 
     /**
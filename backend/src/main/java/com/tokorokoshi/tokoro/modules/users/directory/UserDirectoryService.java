@@ -0,0 +1,296 @@
+package com.tokorokoshi.tokoro.modules.users.directory;
+
+import com.auth0.json.mgmt.users.User;
+import com.tokorokoshi.tokoro.database.UserDirectoryEntry;
+import com.tokorokoshi.tokoro.helpers.CursorPageDto;
+import com.tokorokoshi.tokoro.modules.auth0.Auth0ManagementService;
+import com.tokorokoshi.tokoro.modules.users.UserMapper;
+import com.tokorokoshi.tokoro.modules.users.dto.UserDto;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Service class that keeps a local copy of the Auth0 users in the {@code user_directory} collection
+ * and serves the admin user listing and search from it.
+ * <p>
+ * The copy is refreshed incrementally from the users updated since the newest local copy,
+ * and fully reconciled from time to time to drop users deleted in Auth0.
+ * The two syncs never overlap, so an incremental sync cannot stamp a copy with a time
+ * older than the start of a full sync, which would then drop it as deleted.
+ * Changes made through this application are applied immediately.
+ * </p>
+ */
+@Service
+public class UserDirectoryService {
+    private static final Logger log = LoggerFactory.getLogger(UserDirectoryService.class);
+
+    /**
+     * The maximum number of results of an Auth0 user search.
+     */
+    private static final int AUTH0_SEARCH_LIMIT = 1000;
+
+    private final MongoTemplate repository;
+    private final Auth0ManagementService auth0ManagementService;
+    private final UserMapper userMapper;
+
+    /**
+     * Held by the sync in progress.
+     */
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    @Value("${users.directory.sync-page-size}")
+    private int syncPageSize;
+
+    @Autowired
+    public UserDirectoryService(
+            MongoTemplate repository,
+            Auth0ManagementService auth0ManagementService,
+            UserMapper userMapper
+    ) {
+        this.repository = repository;
+        this.auth0ManagementService = auth0ManagementService;
+        this.userMapper = userMapper;
+    }
+
+    /**
+     * Creates the indexes used to sync, list and search users.
+     */
+    @PostConstruct
+    void ensureIndexes() {
+        var indexOps = repository.indexOps(UserDirectoryEntry.class);
+        indexOps.ensureIndex(new Index()
+                .on("searchTerms", Sort.Direction.ASC)
+                .named("search_terms"));
+        indexOps.ensureIndex(new TextIndexDefinition.TextIndexDefinitionBuilder()
+                .onField("email")
+                .onField("name")
+                .onField("nickname")
+                .named("text")
+                .build());
+        indexOps.ensureIndex(new Index()
+                .on("updatedAt", Sort.Direction.DESC)
+                .named("updatedAt"));
+        indexOps.ensureIndex(new Index()
+                .on("syncedAt", Sort.Direction.ASC)
+                .named("syncedAt"));
+    }
+
+    /**
+     * Retrieves a page of users, ordered by user ID.
+     *
+     * @param pageable the page to retrieve.
+     * @return the page of users, with the total number of users, without roles.
+     */
+    public Page<UserDto> getUsers(Pageable pageable) {
+        Query query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .with(pageable);
+        List<UserDto> users = repository.find(query, UserDirectoryEntry.class).stream()
+                .map(userMapper::toDto)
+                .toList();
+        long total = repository.estimatedCount(UserDirectoryEntry.class);
+        return new PageImpl<>(users, pageable, total);
+    }
+
+    /**
+     * Searches users, ordered by user ID, one page after another.
+     * A single word matches users whose email, name or nickname starts with it;
+     * several words are matched with the text index.
+     *
+     * @param search the text to search for, or null to list all users.
+     * @param after  the user ID the previous page ended with, or null for the first page.
+     * @param size   the number of users per page, at least 1.
+     * @return the page of users, with the total number of matching users, without roles.
+     */
+    public CursorPageDto<UserDto> searchUsers(String search, String after, int size) {
+        Query query = new Query();
+        String term = search == null ? "" : search.strip().toLowerCase(Locale.ROOT);
+        if (term.contains(" ")) {
+            query.addCriteria(TextCriteria.forDefaultLanguage().matching(term));
+        } else if (!term.isEmpty()) {
+            // Special characters are escaped, so the regex stays a plain prefix that can use the index
+            query.addCriteria(Criteria.where("searchTerms").regex("^" + term.replaceAll("\\W", "\\\\$0")));
+        }
+
+        long total = repository.count(query, UserDirectoryEntry.class);
+
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(size);
+        if (after != null) {
+            query.addCriteria(Criteria.where("_id").gt(after));
+        }
+        List<UserDirectoryEntry> entries = repository.find(query, UserDirectoryEntry.class);
+
+        String next = entries.isEmpty() || entries.size() < size ? null : entries.getLast().id();
+        return new CursorPageDto<>(
+                entries.stream().map(userMapper::toDto).toList(),
+                next,
+                total
+        );
+    }
+
+    /**
+     * Copies the current state of a user, e.g. after it was changed through this application.
+     * Failures are only logged, since the next sync repairs the copy.
+     *
+     * @param userId the Auth0 user ID.
+     */
+    public void refresh(String userId) {
+        try {
+            save(List.of(auth0ManagementService.getUser(userId)), Instant.now());
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh the directory entry of user {}", userId, e);
+        }
+    }
+
+    /**
+     * Removes a user, e.g. after it was deleted through this application.
+     *
+     * @param userId the Auth0 user ID.
+     */
+    public void remove(String userId) {
+        repository.remove(Query.query(Criteria.where("_id").is(userId)), UserDirectoryEntry.class);
+    }
+
+    /**
+     * Copies the users updated since the newest local copy.
+     * Nothing is copied while a full sync is running, since it copies them as well.
+     *
+     * @return the number of copied users.
+     */
+    public int syncUpdatedUsers() {
+        if (!syncLock.tryLock()) {
+            log.debug("A full sync is running, skipping the sync of updated users");
+            return 0;
+        }
+        try {
+            Query newest = new Query()
+                    .with(Sort.by(Sort.Direction.DESC, "updatedAt"))
+                    .limit(1);
+            newest.fields().include("updatedAt");
+            UserDirectoryEntry entry = repository.findOne(newest, UserDirectoryEntry.class);
+            return syncUsersUpdatedSince(entry == null ? null : entry.updatedAt(), Instant.now()).synced();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Copies every user and removes the local copies of users that no longer exist in Auth0.
+     * Nothing is removed if some users could not be copied, since they would be taken for deleted users.
+     * A running incremental sync is waited for first.
+     *
+     * @return the number of copied users.
+     */
+    public int syncAllUsers() {
+        syncLock.lock();
+        try {
+            Instant startedAt = Instant.now();
+            SyncResult result = syncUsersUpdatedSince(null, startedAt);
+            if (!result.complete()) {
+                log.warn("Not all users were synced, deleted users are kept in the directory until the next full sync");
+                return result.synced();
+            }
+
+            long removed = repository.remove(
+                    Query.query(Criteria.where("syncedAt").lt(startedAt)),
+                    UserDirectoryEntry.class
+            ).getDeletedCount();
+            if (removed > 0) {
+                log.info("Removed {} deleted users from the directory", removed);
+            }
+            return result.synced();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Copies the users updated since a given time, searching again from the last update time
+     * whenever the Auth0 search result limit is reached.
+     *
+     * @param since    the earliest update time to copy, or null for all users.
+     * @param syncedAt the time to stamp the copies with.
+     * @return the number of copied users, and whether every user updated since then was copied.
+     */
+    private SyncResult syncUsersUpdatedSince(Date since, Instant syncedAt) {
+        int synced = 0;
+        while (true) {
+            int windowSize = 0;
+            User last = null;
+            for (int page = 0; page * syncPageSize < AUTH0_SEARCH_LIMIT; page++) {
+                List<User> users = auth0ManagementService.getUsersUpdatedSince(since, page, syncPageSize);
+                if (users.isEmpty()) {
+                    break;
+                }
+                save(users, syncedAt);
+                windowSize += users.size();
+                last = users.getLast();
+                if (users.size() < syncPageSize) {
+                    break;
+                }
+            }
+            synced += windowSize;
+
+            if (windowSize < AUTH0_SEARCH_LIMIT || last == null) {
+                return new SyncResult(synced, true);
+            }
+            if (since != null && !last.getUpdatedAt().after(since)) {
+                log.warn("More than {} users were updated at {}, some were not synced", AUTH0_SEARCH_LIMIT, since);
+                return new SyncResult(synced, false);
+            }
+            since = last.getUpdatedAt();
+        }
+    }
+
+    /**
+     * Upserts the local copies of users.
+     *
+     * @param users    the Auth0 users.
+     * @param syncedAt the time to stamp the copies with.
+     */
+    private void save(List<User> users, Instant syncedAt) {
+        BulkOperations operations = repository.bulkOps(BulkOperations.BulkMode.UNORDERED, UserDirectoryEntry.class);
+        for (User user : users) {
+            UserDirectoryEntry entry = userMapper.toDirectoryEntry(user)
+                    .withSearchTerms()
+                    .withSyncedAt(syncedAt);
+            operations.replaceOne(
+                    Query.query(Criteria.where("_id").is(entry.id())),
+                    entry,
+                    FindAndReplaceOptions.options().upsert()
+            );
+        }
+        operations.execute();
+    }
+
+    /**
+     * Outcome of a sync.
+     *
+     * @param synced   the number of copied users.
+     * @param complete whether every user in the synced range was copied.
+     */
+    private record SyncResult(int synced, boolean complete) {
+    }
+}
@@ -0,0 +1,61 @@
+package com.tokorokoshi.tokoro.modules.users.directory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Background job that keeps the user directory in sync with Auth0.
+ * <p>
+ * The job is created eagerly, since nothing injects it and the application
+ * runs with lazy initialization.
+ * </p>
+ */
+@Component
+@Lazy(false)
+public class UserDirectorySync {
+    private static final Logger log = LoggerFactory.getLogger(UserDirectorySync.class);
+
+    private final UserDirectoryService userDirectoryService;
+
+    @Autowired
+    public UserDirectorySync(UserDirectoryService userDirectoryService) {
+        this.userDirectoryService = userDirectoryService;
+    }
+
+    /**
+     * Copies the users updated since the last sync.
+     */
+    @Scheduled(
+            initialDelayString = "${users.directory.sync-interval-ms}",
+            fixedDelayString = "${users.directory.sync-interval-ms}"
+    )
+    public void syncUpdatedUsers() {
+        try {
+            int synced = userDirectoryService.syncUpdatedUsers();
+            log.debug("Synced {} updated users to the directory", synced);
+        } catch (Exception e) {
+            log.warn("Failed to sync updated users to the directory", e);
+        }
+    }
+
+    /**
+     * Copies every user and drops the users deleted in Auth0.
+     * It also fills the directory when the application starts.
+     */
+    @Scheduled(
+            initialDelayString = "${users.directory.full-sync-initial-delay-ms}",
+            fixedDelayString = "${users.directory.full-sync-interval-ms}"
+    )
+    public void syncAllUsers() {
+        try {
+            int synced = userDirectoryService.syncAllUsers();
+            log.info("Synced all {} users to the directory", synced);
+        } catch (Exception e) {
+            log.warn("Failed to sync all users to the directory", e);
+        }
+    }
+}
@@ -154,6 +154,34 @@ public record UserDto(
         );
     }
 
+    /**
+     * Replaces the user metadata of the user.
+     *
+     * @param userMetadata the user metadata.
+     * @return a new {@link UserDto} object with the given user metadata.
+     */
+    public UserDto withUserMetadata(Map<String, Object> userMetadata) {
+        return new UserDto(
+                username,
+                userId,
+                email,
+                phoneNumber,
+                picture,
+                name,
+                nickname,
+                givenName,
+                familyName,
+                createdAt,
+                updatedAt,
+                appMetadata,
+                userMetadata,
+                blocked,
+                values,
+                roles,
+                permissions
+        );
+    }
+
     /**
      * Adds permissions to the user.
      *
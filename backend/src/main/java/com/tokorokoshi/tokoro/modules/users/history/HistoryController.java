@@ -10,16 +10,17 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import org.apache.coyote.BadRequestException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ServerErrorException;
 
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 
@@ -34,6 +35,11 @@ public class HistoryController {
     private static final Logger log =
             LoggerFactory.getLogger(HistoryController.class);
 
+    /**
+     * Maximum number of history entries added in one batch.
+     */
+    private static final int MAX_BATCH_SIZE = 100;
+
     private final HistoryService historyService;
 
     @Autowired
@@ -71,6 +77,37 @@ public class HistoryController {
         }
     }
 
+    /**
+     * Adds several history entries to the currently authenticated user's history at once.
+     *
+     * @param historyEntryDtos the history entries to add, at most {@value #MAX_BATCH_SIZE}.
+     * @return a response indicating success or failure.
+     */
+    @Operation(
+            summary = "Add history entries in a batch",
+            description = "Accepts a request with a JSON array body to add up to 100 history entries in one write"
+    )
+    @PostMapping("/batch")
+    public ResponseEntity<String> addHistoryEntries(
+            @Parameter(
+                    description = "The history entries to add",
+                    required = true
+            )
+            @Valid
+            @Size(min = 1, max = MAX_BATCH_SIZE)
+            @RequestBody
+            List<@Valid HistoryEntryDto> historyEntryDtos
+    ) throws BadRequestException {
+        try {
+            historyService.addHistoryEntries(historyEntryDtos);
+            return ResponseEntity.ok("History entries added successfully");
+        } catch (InvalidEstablishmentException e) {
+            throw new BadRequestException("Invalid establishment");
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to add history entries");
+        }
+    }
+
     /**
      * Rolls back the last history entry for the currently authenticated user.
      *
@@ -394,12 +431,9 @@ public class HistoryController {
     @GetMapping("/sort/timestamp")
     public ResponseEntity<List<HistoryEntryDto>> getHistoryEntriesSortedByTimestamp() {
         try {
-            List<HistoryEntryDto> historyEntries =
-                    historyService.getHistoryEntries();
-            var comparer = Comparator.comparing(HistoryEntryDto::timestamp);
-            return ResponseEntity.ok(historyEntries.stream()
-                    .sorted(comparer)
-                    .toList());
+            return ResponseEntity.ok(
+                    historyService.getHistoryEntries(Sort.Direction.ASC)
+            );
         } catch (Exception ex) {
             throw new ServerErrorException(
                     "Failed to sort history entries by timestamp",
@@ -420,13 +454,9 @@ public class HistoryController {
     @GetMapping("/sort/timestamp-desc")
     public ResponseEntity<List<HistoryEntryDto>> getHistoryEntriesSortedByTimestampDescending() {
         try {
-            List<HistoryEntryDto> historyEntries =
-                    historyService.getHistoryEntries();
-            var comparer = Comparator.comparing(HistoryEntryDto::timestamp)
-                    .reversed();
-            return ResponseEntity.ok(historyEntries.stream()
-                    .sorted(comparer)
-                    .toList());
+            return ResponseEntity.ok(
+                    historyService.getHistoryEntries(Sort.Direction.DESC)
+            );
         } catch (Exception ex) {
             throw new ServerErrorException(
                     "Failed to sort history entries by timestamp in descending order",
@@ -517,9 +547,9 @@ public class HistoryController {
             description = "Counts the number of history entries for the currently authenticated user"
     )
     @GetMapping("/count")
-    public ResponseEntity<Integer> countHistoryEntries() {
+    public ResponseEntity<Long> countHistoryEntries() {
         try {
-            int count = historyService.getHistoryEntries().size();
+            long count = historyService.countHistoryEntries();
             return ResponseEntity.ok(count);
         } catch (Exception ex) {
             throw new ServerErrorException(
@@ -0,0 +1,18 @@
+package com.tokorokoshi.tokoro.modules.users.history;
+
+import com.tokorokoshi.tokoro.database.UserHistoryEvent;
+import com.tokorokoshi.tokoro.modules.users.history.dto.HistoryEntryDto;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.List;
+
+@Mapper(componentModel = "spring")
+public interface HistoryMapper {
+    @Mapping(target = "id", ignore = true)
+    UserHistoryEvent toSchema(String userId, HistoryEntryDto historyEntryDto);
+
+    HistoryEntryDto toDto(UserHistoryEvent historyEvent);
+
+    List<HistoryEntryDto> toDto(List<UserHistoryEvent> historyEvents);
+}
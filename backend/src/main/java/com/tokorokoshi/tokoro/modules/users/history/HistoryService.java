@@ -1,114 +1,155 @@
 package com.tokorokoshi.tokoro.modules.users.history;
 
-import com.auth0.json.mgmt.users.User;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.tokorokoshi.tokoro.modules.auth0.Auth0ManagementService;
+import com.tokorokoshi.tokoro.database.UserHistoryEvent;
 import com.tokorokoshi.tokoro.modules.exceptions.auth0.Auth0ManagementException;
 import com.tokorokoshi.tokoro.modules.exceptions.establishments.InvalidEstablishmentException;
+import com.tokorokoshi.tokoro.modules.places.PlaceHydrationService;
 import com.tokorokoshi.tokoro.modules.places.PlacesService;
 import com.tokorokoshi.tokoro.modules.places.dto.PlaceDto;
-import com.tokorokoshi.tokoro.modules.users.UserService;
 import com.tokorokoshi.tokoro.modules.users.history.dto.HistoryEntryDto;
+import com.tokorokoshi.tokoro.modules.users.profile.LegacyProfileMigration;
+import com.tokorokoshi.tokoro.modules.users.profile.UserProfileService;
 import com.tokorokoshi.tokoro.security.SecurityUtils;
+import jakarta.annotation.PostConstruct;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
-import java.util.*;
+import java.util.Date;
+import java.util.List;
 
 /**
  * Service class responsible for managing user history entries.
- * This service interacts with user metadata stored in Auth0 and provides methods to add, rollback, and retrieve history entries.
+ * <p>
+ * Every entry is a document of the {@code user_history} collection, so appending,
+ * filtering, counting and rolling back are indexed queries on the entries of one user
+ * instead of rewrites of a whole list.
+ * Each user keeps at most {@code max_history_entries} entries; the oldest ones are dropped.
+ * </p>
+ * <p>
+ * The history still embedded in the profile of a user is moved to the collection on first access,
+ * so every method throws {@link Auth0ManagementException} if that migration is needed and Auth0 fails.
+ * </p>
  */
 @Service
 public class HistoryService {
 
-    private static final Logger log = LoggerFactory.getLogger(HistoryService.class);
-
-    private static final String HISTORY_KEY = "history";
-    private final Auth0ManagementService auth0ManagementService;
+    private static final String USER_ID = "userId";
+    private static final String ACTION = "action";
+    private static final String ESTABLISHMENT_ID = "establishmentId";
+    private static final String TIMESTAMP = "timestamp";
 
     @Value("${max_history_entries}")
     private int MAX_HISTORY_ENTRIES;
 
-    private final UserService userService;
+    private final MongoTemplate repository;
     private final PlacesService placesService;
-    private final ObjectMapper objectMapper;
+    private final PlaceHydrationService placeHydrationService;
+    private final HistoryMapper historyMapper;
+
+    private final LegacyProfileMigration<HistoryEntryDto> legacyHistoryMigration;
 
     @Autowired
-    public HistoryService(UserService userService, PlacesService placesService, ObjectMapper objectMapper, Auth0ManagementService auth0ManagementService) {
-        this.userService = userService;
+    public HistoryService(
+            MongoTemplate repository,
+            UserProfileService userProfileService,
+            PlacesService placesService,
+            PlaceHydrationService placeHydrationService,
+            HistoryMapper historyMapper
+    ) {
+        this.repository = repository;
         this.placesService = placesService;
-        this.objectMapper = objectMapper;
-        this.auth0ManagementService = auth0ManagementService;
+        this.placeHydrationService = placeHydrationService;
+        this.historyMapper = historyMapper;
+        this.legacyHistoryMigration = new LegacyProfileMigration<>(
+                "history entries",
+                userProfileService::takeLegacyHistory,
+                (userId, history) -> repository.insert(toSchema(userId, history), UserHistoryEvent.class),
+                userProfileService::restoreLegacyHistory
+        );
+    }
+
+    /**
+     * Creates the indexes used to query the history of a user.
+     */
+    @PostConstruct
+    void ensureIndexes() {
+        var indexOps = repository.indexOps(UserHistoryEvent.class);
+        indexOps.ensureIndex(new Index()
+                .on(USER_ID, Sort.Direction.ASC)
+                .on(TIMESTAMP, Sort.Direction.DESC)
+                .named("user_timestamp"));
+        indexOps.ensureIndex(new Index()
+                .on(USER_ID, Sort.Direction.ASC)
+                .on(ACTION, Sort.Direction.ASC)
+                .on(TIMESTAMP, Sort.Direction.DESC)
+                .named("user_action_timestamp"));
+        indexOps.ensureIndex(new Index()
+                .on(USER_ID, Sort.Direction.ASC)
+                .on(ESTABLISHMENT_ID, Sort.Direction.ASC)
+                .on(TIMESTAMP, Sort.Direction.DESC)
+                .named("user_establishment_timestamp"));
     }
 
     /**
-     * Adds a history entry to the currently authenticated user's metadata.
+     * Adds a history entry to the currently authenticated user's history.
      *
      * @param historyEntryDto the history entry to add.
-     * @throws Auth0ManagementException if there is an error updating the user metadata.
      * @throws InvalidEstablishmentException if the establishment ID is invalid.
      */
     public void addHistoryEntry(@Valid HistoryEntryDto historyEntryDto) {
-        validateEstablishmentId(historyEntryDto.establishmentId());
-
-        User user = auth0ManagementService.getUser(SecurityUtils.getAuthenticatedUserId());
-        Map<String, Object> userMetadata = userService.getUserMetadata(SecurityUtils.getAuthenticatedUserId());
+        addHistoryEntries(List.of(historyEntryDto));
+    }
 
-        List<HistoryEntryDto> historyEntries = getHistoryEntriesFromMetadata(userMetadata);
-        if (historyEntries.size() >= MAX_HISTORY_ENTRIES) {
-            log.warn("Maximum history entries reached for user {}. Removing the oldest entry.", user.getId());
-            historyEntries.removeFirst(); // Remove the oldest entry if the limit is reached
+    /**
+     * Adds several history entries to the currently authenticated user's history in one write.
+     *
+     * @param historyEntryDtos the history entries to add.
+     * @throws InvalidEstablishmentException if one of the establishment IDs is invalid.
+     */
+    public void addHistoryEntries(@NotNull List<@Valid HistoryEntryDto> historyEntryDtos) {
+        if (historyEntryDtos.isEmpty()) {
+            return;
         }
+        historyEntryDtos.stream()
+                .map(HistoryEntryDto::establishmentId)
+                .distinct()
+                .forEach(this::validateEstablishmentId);
+
+        String userId = getUserId();
+        repository.insert(toSchema(userId, historyEntryDtos), UserHistoryEvent.class);
 
-        historyEntries.add(historyEntryDto);
-        auth0ManagementService.updateUserMetadata(SecurityUtils.getAuthenticatedUserId(), Map.of(HISTORY_KEY, historyEntries));
+        // The oldest entries are dropped once the limit is reached
+        trimHistory(userId);
     }
 
     /**
      * Rolls back the last history entry for the currently authenticated user.
-     *
-     * @throws Auth0ManagementException if there is an error updating the user metadata.
      */
     public void rollbackHistoryEntry() {
-        Map<String, Object> userMetadata = userService.getUserMetadata(SecurityUtils.getAuthenticatedUserId());
-
-        List<HistoryEntryDto> historyEntries = getHistoryEntriesFromMetadata(userMetadata);
-        if (historyEntries.isEmpty()) {
-            return;
-        }
-
-        historyEntries.removeLast();
-        auth0ManagementService.updateUserMetadata(SecurityUtils.getAuthenticatedUserId(), Map.of(HISTORY_KEY, historyEntries));
+        repository.findAndRemove(
+                latest(Criteria.where(USER_ID).is(getUserId())),
+                UserHistoryEvent.class
+        );
     }
 
     /**
      * Rolls back the last history entry with a specific action for the currently authenticated user.
      *
      * @param action the action to rollback.
-     * @throws Auth0ManagementException if there is an error updating the user metadata.
      */
     public void rollbackHistoryEntryByAction(@NotNull String action) {
-        Map<String, Object> userMetadata = userService.getUserMetadata(SecurityUtils.getAuthenticatedUserId());
-
-        List<HistoryEntryDto> historyEntries = getHistoryEntriesFromMetadata(userMetadata);
-
-        List<HistoryEntryDto> filteredEntries = historyEntries.stream()
-                .filter(he -> he.action().equals(action))
-                .toList();
-
-        if (filteredEntries.isEmpty()) {
-           return;
-        }
-
-        HistoryEntryDto rolledBackEntry = filteredEntries.getLast();
-        historyEntries.remove(rolledBackEntry);
-        auth0ManagementService.updateUserMetadata(SecurityUtils.getAuthenticatedUserId(), Map.of(HISTORY_KEY, historyEntries));
+        repository.findAndRemove(
+                latest(Criteria.where(USER_ID).is(getUserId()).and(ACTION).is(action)),
+                UserHistoryEvent.class
+        );
     }
 
     /**
@@ -116,50 +157,42 @@ public class HistoryService {
      *
      * @param startDate the start timestamp of the range.
      * @param endDate the end timestamp of the range.
-     * @throws Auth0ManagementException if there is an error updating the user metadata.
      */
     public void rollbackHistoryEntriesByTimestampRange(@NotNull Date startDate, @NotNull Date endDate) {
-        Map<String, Object> userMetadata = userService.getUserMetadata(SecurityUtils.getAuthenticatedUserId());
-
-        List<HistoryEntryDto> historyEntries = getHistoryEntriesFromMetadata(userMetadata);
-
-        List<HistoryEntryDto> entriesToRemove = historyEntries.stream()
-                .filter(he -> !he.timestamp().before(startDate) && !he.timestamp().after(endDate))
-                .toList();
-
-        if (entriesToRemove.isEmpty()) {
-           return;
-        }
-
-        historyEntries.removeAll(entriesToRemove);
-        auth0ManagementService.updateUserMetadata(SecurityUtils.getAuthenticatedUserId(), Map.of(HISTORY_KEY, historyEntries));
+        Criteria criteria = Criteria.where(USER_ID).is(getUserId())
+                .and(TIMESTAMP).gte(startDate).lte(endDate);
+        repository.remove(Query.query(criteria), UserHistoryEvent.class);
     }
 
     /**
-     * Retrieves all history entries for the currently authenticated user.
+     * Retrieves all history entries for the currently authenticated user, oldest first.
      *
      * @return a list of {@link HistoryEntryDto} objects.
-     * @throws Auth0ManagementException if there is an error fetching the user metadata.
      */
     public List<HistoryEntryDto> getHistoryEntries() {
-        Map<String, Object> userMetadata = userService.getUserMetadata(SecurityUtils.getAuthenticatedUserId());
+        return getHistoryEntries(Sort.Direction.ASC);
+    }
 
-        return getHistoryEntriesFromMetadata(userMetadata);
+    /**
+     * Retrieves all history entries for the currently authenticated user, sorted by timestamp.
+     *
+     * @param direction the direction to sort the timestamps in.
+     * @return a list of {@link HistoryEntryDto} objects.
+     */
+    public List<HistoryEntryDto> getHistoryEntries(@NotNull Sort.Direction direction) {
+        return findHistoryEntries(Criteria.where(USER_ID).is(getUserId()), direction);
     }
 
     /**
-     * Retrieves all history entries for the currently authenticated user as PlaceDto objects.
+     * Retrieves all history entries for the currently authenticated user as PlaceDto objects,
+     * loading the places with one query.
      *
-     * @return a list of {@link PlaceDto} objects.
-     * @throws Auth0ManagementException if there is an error fetching the user metadata.
+     * @return a list of {@link PlaceDto} objects, one per entry, null for places that no longer exist.
      */
     public List<PlaceDto> getHistoryEntriesAsPlaces() {
-        Map<String, Object> userMetadata = userService.getUserMetadata(SecurityUtils.getAuthenticatedUserId());
-
-        List<HistoryEntryDto> historyEntries = getHistoryEntriesFromMetadata(userMetadata);
-        return historyEntries.stream()
-                .map(he -> placesService.getPlaceById(he.establishmentId()))
-                .toList();
+        return placeHydrationService.hydrate(getHistoryEntries().stream()
+                .map(HistoryEntryDto::establishmentId)
+                .toList());
     }
 
     /**
@@ -167,15 +200,12 @@ public class HistoryService {
      *
      * @param action the action to filter by.
      * @return a list of {@link HistoryEntryDto} objects.
-     * @throws Auth0ManagementException if there is an error fetching the user metadata.
      */
     public List<HistoryEntryDto> getHistoryEntriesByAction(@NotNull String action) {
-        Map<String, Object> userMetadata = userService.getUserMetadata(SecurityUtils.getAuthenticatedUserId());
-
-        List<HistoryEntryDto> historyEntries = getHistoryEntriesFromMetadata(userMetadata);
-        return historyEntries.stream()
-                .filter(he -> he.action().equals(action))
-                .toList();
+        return findHistoryEntries(
+                Criteria.where(USER_ID).is(getUserId()).and(ACTION).is(action),
+                Sort.Direction.ASC
+        );
     }
 
     /**
@@ -183,18 +213,15 @@ public class HistoryService {
      *
      * @param establishmentId the establishment ID to filter by.
      * @return a list of {@link HistoryEntryDto} objects.
-     * @throws Auth0ManagementException if there is an error fetching the user metadata.
      * @throws InvalidEstablishmentException if the establishment ID is invalid.
      */
     public List<HistoryEntryDto> getHistoryEntriesByEstablishmentId(@NotNull String establishmentId) {
         validateEstablishmentId(establishmentId);
 
-        Map<String, Object> userMetadata = userService.getUserMetadata(SecurityUtils.getAuthenticatedUserId());
-
-        List<HistoryEntryDto> historyEntries = getHistoryEntriesFromMetadata(userMetadata);
-        return historyEntries.stream()
-                .filter(he -> he.establishmentId().equals(establishmentId))
-                .toList();
+        return findHistoryEntries(
+                Criteria.where(USER_ID).is(getUserId()).and(ESTABLISHMENT_ID).is(establishmentId),
+                Sort.Direction.ASC
+        );
     }
 
     /**
@@ -202,33 +229,23 @@ public class HistoryService {
      *
      * @param timestamp the timestamp of the history entry to retrieve.
      * @return the {@link HistoryEntryDto} object if found, otherwise null.
-     * @throws Auth0ManagementException if there is an error fetching the user metadata.
      */
     public HistoryEntryDto getHistoryEntryByTimestamp(@NotNull Date timestamp) {
-        Map<String, Object> userMetadata = userService.getUserMetadata(SecurityUtils.getAuthenticatedUserId());
-
-        List<HistoryEntryDto> historyEntries = getHistoryEntriesFromMetadata(userMetadata);
-        Optional<HistoryEntryDto> historyEntry = historyEntries.stream()
-                .filter(he -> he.timestamp().equals(timestamp))
-                .findFirst();
-
-        return historyEntry.orElse(null);
+        UserHistoryEvent historyEvent = repository.findOne(
+                Query.query(Criteria.where(USER_ID).is(getUserId()).and(TIMESTAMP).is(timestamp)),
+                UserHistoryEvent.class
+        );
+        return historyEvent != null ? historyMapper.toDto(historyEvent) : null;
     }
 
     /**
      * Clears all history entries for the currently authenticated user.
-     *
-     * @throws Auth0ManagementException if there is an error updating the user metadata.
      */
     public void clearHistoryEntries() {
-        Map<String, Object> userMetadata = userService.getUserMetadata(SecurityUtils.getAuthenticatedUserId());
-
-        if (!userMetadata.containsKey(HISTORY_KEY)) {
-            return;
-        }
-
-        userMetadata.remove(HISTORY_KEY);
-        auth0ManagementService.updateUserMetadata(SecurityUtils.getAuthenticatedUserId(), userMetadata);
+        repository.remove(
+                Query.query(Criteria.where(USER_ID).is(getUserId())),
+                UserHistoryEvent.class
+        );
     }
 
     /**
@@ -236,43 +253,110 @@ public class HistoryService {
      *
      * @param timestamp the timestamp to check.
      * @return true if the history entry exists, false otherwise.
-     * @throws Auth0ManagementException if there is an error fetching the user metadata.
      */
     public boolean isHistoryEntryExists(@NotNull Date timestamp) {
-        Map<String, Object> userMetadata = userService.getUserMetadata(SecurityUtils.getAuthenticatedUserId());
+        return repository.exists(
+                Query.query(Criteria.where(USER_ID).is(getUserId()).and(TIMESTAMP).is(timestamp)),
+                UserHistoryEvent.class
+        );
+    }
 
-        List<HistoryEntryDto> historyEntries = getHistoryEntriesFromMetadata(userMetadata);
-        return historyEntries.stream().anyMatch(he -> he.timestamp().equals(timestamp));
+    /**
+     * Counts the history entries of the currently authenticated user.
+     *
+     * @return the number of history entries.
+     */
+    public long countHistoryEntries() {
+        return repository.count(
+                Query.query(Criteria.where(USER_ID).is(getUserId())),
+                UserHistoryEvent.class
+        );
     }
 
     /**
-     * Validates that the provided establishment ID is not null or empty and exists.
+     * Finds history entries sorted by timestamp.
      *
-     * @param establishmentId the establishment ID to validate.
-     * @throws InvalidEstablishmentException if the establishment does not exist.
+     * @param criteria  the criteria the entries must match.
+     * @param direction the direction to sort the timestamps in.
+     * @return a list of {@link HistoryEntryDto} objects.
      */
-    private void validateEstablishmentId(String establishmentId) {
-        PlaceDto place = placesService.getPlaceById(establishmentId);
-        if (place == null) {
-            throw new InvalidEstablishmentException("Establishment with ID " + establishmentId + " does not exist");
+    private List<HistoryEntryDto> findHistoryEntries(Criteria criteria, Sort.Direction direction) {
+        Query query = Query.query(criteria).with(Sort.by(direction, TIMESTAMP));
+        return historyMapper.toDto(repository.find(query, UserHistoryEvent.class));
+    }
+
+    /**
+     * Builds a query for the newest history entry matching some criteria.
+     *
+     * @param criteria the criteria the entry must match.
+     * @return the query.
+     */
+    private static Query latest(Criteria criteria) {
+        return Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, TIMESTAMP, "_id"))
+                .limit(1);
+    }
+
+    /**
+     * Deletes the oldest history entries of a user beyond {@code max_history_entries}.
+     *
+     * @param userId the Auth0 user ID.
+     */
+    private void trimHistory(String userId) {
+        Query overflow = Query.query(Criteria.where(USER_ID).is(userId))
+                .with(Sort.by(Sort.Direction.DESC, TIMESTAMP, "_id"))
+                .skip(MAX_HISTORY_ENTRIES);
+        overflow.fields().include("_id");
+
+        List<String> ids = repository.find(overflow, UserHistoryEvent.class).stream()
+                .map(UserHistoryEvent::id)
+                .toList();
+        if (!ids.isEmpty()) {
+            repository.remove(Query.query(Criteria.where("_id").in(ids)), UserHistoryEvent.class);
         }
     }
 
     /**
-     * Extracts history entries from user metadata.
+     * Retrieves the ID of the currently authenticated user,
+     * moving the history still embedded in their profile to the history collection first.
      *
-     * @param userMetadata the user metadata map.
-     * @return a list of {@link HistoryEntryDto} objects.
+     * @return the Auth0 user ID.
+     * @throws Auth0ManagementException if the user profile has to be migrated and Auth0 fails.
      */
-    @SuppressWarnings("unchecked")
-    private List<HistoryEntryDto> getHistoryEntriesFromMetadata(Map<String, Object> userMetadata) {
-        List<HistoryEntryDto> historyEntries = new ArrayList<>();
-        if (userMetadata.containsKey(HISTORY_KEY)) {
-            List<Map<String, Object>> historyEntriesMap = (List<Map<String, Object>>) userMetadata.get(HISTORY_KEY);
-            historyEntries = historyEntriesMap.stream()
-                    .map(map -> objectMapper.convertValue(map, HistoryEntryDto.class))
-                    .toList();
+    private String getUserId() {
+        String userId = SecurityUtils.getAuthenticatedUserId();
+        legacyHistoryMigration.migrate(userId);
+        return userId;
+    }
+
+    /**
+     * Converts history entries to documents, stamping entries without a timestamp with the current time.
+     *
+     * @param userId           the Auth0 user ID.
+     * @param historyEntryDtos the history entries.
+     * @return the history documents.
+     */
+    private List<UserHistoryEvent> toSchema(String userId, List<HistoryEntryDto> historyEntryDtos) {
+        Date now = new Date();
+        return historyEntryDtos.stream()
+                .map(entry -> entry.timestamp() != null ? entry : new HistoryEntryDto(
+                        entry.action(),
+                        entry.establishmentId(),
+                        now
+                ))
+                .map(entry -> historyMapper.toSchema(userId, entry))
+                .toList();
+    }
+
+    /**
+     * Validates that the provided establishment ID is not null or empty and exists.
+     *
+     * @param establishmentId the establishment ID to validate.
+     * @throws InvalidEstablishmentException if the establishment does not exist.
+     */
+    private void validateEstablishmentId(String establishmentId) {
+        if (!placesService.placeExists(establishmentId)) {
+            throw new InvalidEstablishmentException("Establishment with ID " + establishmentId + " does not exist");
         }
-        return historyEntries;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,83 @@
+package com.tokorokoshi.tokoro.modules.users.profile;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Moves data still embedded in user profiles to the collection that now owns it,
+ * once per user and instance.
+ * <p>
+ * The data is taken out of the profile, stored, and put back into the profile if storing it fails,
+ * so a failed migration loses nothing and is tried again on the next access.
+ * The users already migrated by this instance are remembered, so later accesses skip the profile.
+ * </p>
+ *
+ * @param <T> the type of the embedded items
+ */
+public class LegacyProfileMigration<T> {
+    private static final Logger log = LoggerFactory.getLogger(LegacyProfileMigration.class);
+
+    private final String description;
+    private final Function<String, List<T>> take;
+    private final BiConsumer<String, List<T>> store;
+    private final BiConsumer<String, List<T>> restore;
+
+    /**
+     * Users whose data was already moved out of their profile by this instance.
+     */
+    private final Cache<String, Boolean> migratedUsers = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofHours(1))
+            .maximumSize(100_000)
+            .build();
+
+    /**
+     * @param description what the items are, for the logs
+     * @param take        removes the items from the profile of a user and returns them
+     * @param store       stores the items of a user in their own collection
+     * @param restore     puts the items back into the profile of a user
+     */
+    public LegacyProfileMigration(
+            String description,
+            Function<String, List<T>> take,
+            BiConsumer<String, List<T>> store,
+            BiConsumer<String, List<T>> restore
+    ) {
+        this.description = description;
+        this.take = take;
+        this.store = store;
+        this.restore = restore;
+    }
+
+    /**
+     * Moves the items embedded in the profile of a user to their collection,
+     * unless this instance already did.
+     *
+     * @param userId the Auth0 user ID.
+     * @throws com.tokorokoshi.tokoro.modules.exceptions.auth0.Auth0ManagementException
+     *         if the user profile has to be migrated and Auth0 fails.
+     */
+    public void migrate(String userId) {
+        if (migratedUsers.getIfPresent(userId) != null) {
+            return;
+        }
+
+        List<T> items = take.apply(userId);
+        if (!items.isEmpty()) {
+            try {
+                store.accept(userId, items);
+                log.info("Moved {} {} of user {} out of the profile", items.size(), description, userId);
+            } catch (RuntimeException e) {
+                restore.accept(userId, items);
+                throw e;
+            }
+        }
+        migratedUsers.put(userId, Boolean.TRUE);
+    }
+}
@@ -0,0 +1,36 @@
+package com.tokorokoshi.tokoro.modules.users.profile;
+
+import com.tokorokoshi.tokoro.database.UserCollection;
+import com.tokorokoshi.tokoro.database.UserHistoryEntry;
+import com.tokorokoshi.tokoro.database.UserPreferences;
+import com.tokorokoshi.tokoro.modules.favorites.dto.CollectionDto;
+import com.tokorokoshi.tokoro.modules.users.history.dto.HistoryEntryDto;
+import com.tokorokoshi.tokoro.modules.users.preferences.dto.PreferencesDto;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.List;
+
+@Mapper(componentModel = "spring")
+public interface UserProfileMapper {
+    UserPreferences toPreferencesSchema(PreferencesDto preferencesDto);
+
+    PreferencesDto toPreferencesDto(UserPreferences preferences);
+
+    UserCollection toCollectionSchema(CollectionDto collectionDto);
+
+    List<UserCollection> toCollectionSchema(List<CollectionDto> collectionDtos);
+
+    @Mapping(target = "userId", ignore = true)
+    CollectionDto toCollectionDto(UserCollection collection);
+
+    List<CollectionDto> toCollectionDto(List<UserCollection> collections);
+
+    UserHistoryEntry toHistoryEntrySchema(HistoryEntryDto historyEntryDto);
+
+    List<UserHistoryEntry> toHistoryEntrySchema(List<HistoryEntryDto> historyEntryDtos);
+
+    HistoryEntryDto toHistoryEntryDto(UserHistoryEntry historyEntry);
+
+    List<HistoryEntryDto> toHistoryEntryDto(List<UserHistoryEntry> historyEntries);
+}
@@ -0,0 +1,301 @@
+package com.tokorokoshi.tokoro.modules.users.profile;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tokorokoshi.tokoro.database.UserCollection;
+import com.tokorokoshi.tokoro.database.UserHistoryEntry;
+import com.tokorokoshi.tokoro.database.UserPreferences;
+import com.tokorokoshi.tokoro.database.UserProfile;
+import com.tokorokoshi.tokoro.modules.auth0.Auth0ManagementService;
+import com.tokorokoshi.tokoro.modules.exceptions.auth0.UserFetchException;
+import com.tokorokoshi.tokoro.modules.favorites.dto.CollectionDto;
+import com.tokorokoshi.tokoro.modules.users.history.dto.HistoryEntryDto;
+import com.tokorokoshi.tokoro.modules.users.preferences.dto.PreferencesDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service class that stores the application data of users in the {@code user_profile} collection.
+ * <p>
+ * The data used to live in the Auth0 user metadata. A profile is created on the first
+ * access of a user, copying whatever the metadata holds, so Auth0 is only called once per user.
+ * </p>
+ */
+@Service
+public class UserProfileService {
+    private static final Logger log = LoggerFactory.getLogger(UserProfileService.class);
+
+    private static final String PREFERENCES_KEY = "preferences";
+    private static final String COLLECTIONS_KEY = "collections";
+    private static final String HISTORY_KEY = "history";
+
+    private final MongoTemplate repository;
+    private final Auth0ManagementService auth0ManagementService;
+    private final UserProfileMapper userProfileMapper;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public UserProfileService(
+            MongoTemplate repository,
+            Auth0ManagementService auth0ManagementService,
+            UserProfileMapper userProfileMapper,
+            ObjectMapper objectMapper
+    ) {
+        this.repository = repository;
+        this.auth0ManagementService = auth0ManagementService;
+        this.userProfileMapper = userProfileMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Retrieves the profile of a user, migrating it from Auth0 on first access.
+     *
+     * @param userId the Auth0 user ID.
+     * @return the profile of the user.
+     * @throws UserFetchException if the user metadata cannot be fetched from Auth0.
+     */
+    public UserProfile getProfile(String userId) {
+        UserProfile profile = repository.findById(userId, UserProfile.class);
+        return profile != null ? profile : migrateProfile(userId);
+    }
+
+    /**
+     * Retrieves the preferences of a user.
+     *
+     * @param userId the Auth0 user ID.
+     * @return the preferences, or null if the user has none.
+     */
+    public PreferencesDto getPreferences(String userId) {
+        return userProfileMapper.toPreferencesDto(getProfile(userId).preferences());
+    }
+
+    /**
+     * Replaces the preferences of a user.
+     *
+     * @param userId         the Auth0 user ID.
+     * @param preferencesDto the preferences, or null to clear them.
+     */
+    public void setPreferences(String userId, PreferencesDto preferencesDto) {
+        Update update = preferencesDto == null
+                ? new Update().unset(PREFERENCES_KEY)
+                : new Update().set(PREFERENCES_KEY, userProfileMapper.toPreferencesSchema(preferencesDto));
+        updateProfile(userId, update);
+    }
+
+    /**
+     * Sets one preference of a user, creating the preferences from the defaults if the user has none.
+     * Only the given field is written, so concurrent updates of different preferences do not overwrite each other.
+     *
+     * @param userId   the Auth0 user ID.
+     * @param field    the name of the preference, a field of {@link UserPreferences}.
+     * @param value    the new value.
+     * @param defaults the preferences to create if the user has none, already holding the new value.
+     */
+    public void updatePreference(String userId, String field, Object value, PreferencesDto defaults) {
+        Update setField = new Update()
+                .set(PREFERENCES_KEY + "." + field, value)
+                .set("updatedAt", Instant.now());
+        if (updatePreferences(userId, true, setField)) {
+            return;
+        }
+
+        getProfile(userId);
+        Update setDefaults = new Update()
+                .set(PREFERENCES_KEY, userProfileMapper.toPreferencesSchema(defaults))
+                .set("updatedAt", Instant.now());
+        if (!updatePreferences(userId, false, setDefaults)) {
+            // The preferences were migrated or created concurrently
+            updatePreferences(userId, true, setField);
+        }
+    }
+
+    /**
+     * Applies an update to the profile of a user, only if it has preferences or only if it has none.
+     *
+     * @param userId         the Auth0 user ID.
+     * @param hasPreferences whether the profile must have preferences.
+     * @param update         the update to apply.
+     * @return whether the profile was updated.
+     */
+    private boolean updatePreferences(String userId, boolean hasPreferences, Update update) {
+        Criteria preferences = Criteria.where(PREFERENCES_KEY);
+        Query query = Query.query(Criteria.where("_id").is(userId)
+                .andOperator(hasPreferences ? preferences.ne(null) : preferences.is(null)));
+        return repository.updateFirst(query, update, UserProfile.class).getMatchedCount() > 0;
+    }
+
+    /**
+     * Removes the collections embedded in the profile of a user and returns them,
+     * migrating the profile first if it does not exist yet.
+     * <p>
+     * The collections now live in their own collection; this hands the collections
+     * that were stored in the profile or the Auth0 user metadata over to it exactly once.
+     * </p>
+     *
+     * @param userId the Auth0 user ID.
+     * @return the embedded collections, empty if there are none.
+     */
+    public List<CollectionDto> takeLegacyCollections(String userId) {
+        UserProfile profile = takeLegacyField(userId, COLLECTIONS_KEY);
+        if (profile == null || profile.collections() == null) {
+            return List.of();
+        }
+        return userProfileMapper.toCollectionDto(profile.collections()).stream()
+                .map(collection -> collection.withUserId(userId))
+                .toList();
+    }
+
+    /**
+     * Puts collections back into the profile of a user,
+     * used when handing them over to the collections collection failed.
+     *
+     * @param userId      the Auth0 user ID.
+     * @param collections the collections.
+     */
+    public void restoreLegacyCollections(String userId, List<CollectionDto> collections) {
+        updateProfile(
+                userId,
+                new Update().set(COLLECTIONS_KEY, userProfileMapper.toCollectionSchema(collections))
+        );
+    }
+
+    /**
+     * Removes the history embedded in the profile of a user and returns it,
+     * migrating the profile first if it does not exist yet.
+     * <p>
+     * The history now lives in its own collection; this hands the entries
+     * that were stored in the profile or the Auth0 user metadata over to it exactly once.
+     * </p>
+     *
+     * @param userId the Auth0 user ID.
+     * @return the embedded history entries, oldest first, empty if there are none.
+     */
+    public List<HistoryEntryDto> takeLegacyHistory(String userId) {
+        UserProfile profile = takeLegacyField(userId, HISTORY_KEY);
+        if (profile == null || profile.history() == null) {
+            return List.of();
+        }
+        return userProfileMapper.toHistoryEntryDto(profile.history());
+    }
+
+    /**
+     * Puts history entries back into the profile of a user,
+     * used when handing them over to the history collection failed.
+     *
+     * @param userId  the Auth0 user ID.
+     * @param history the history entries, oldest first.
+     */
+    public void restoreLegacyHistory(String userId, List<HistoryEntryDto> history) {
+        updateProfile(
+                userId,
+                new Update().set(HISTORY_KEY, userProfileMapper.toHistoryEntrySchema(history))
+        );
+    }
+
+    /**
+     * Atomically removes a field from the profile of a user,
+     * migrating the profile first if it does not exist yet.
+     *
+     * @param userId the Auth0 user ID.
+     * @param key    the field to remove.
+     * @return the profile as it was before the removal, or null if it did not have the field.
+     */
+    private UserProfile takeLegacyField(String userId, String key) {
+        if (!repository.exists(Query.query(Criteria.where("_id").is(userId)), UserProfile.class)) {
+            migrateProfile(userId);
+        }
+
+        return repository.findAndModify(
+                Query.query(Criteria.where("_id").is(userId).and(key).exists(true)),
+                new Update().unset(key),
+                UserProfile.class
+        );
+    }
+
+    /**
+     * Applies an update to the profile of a user, migrating the profile first if it does not exist yet.
+     *
+     * @param userId the Auth0 user ID.
+     * @param update the update to apply.
+     */
+    private void updateProfile(String userId, Update update) {
+        Query query = Query.query(Criteria.where("_id").is(userId));
+        update.set("updatedAt", Instant.now());
+        if (repository.updateFirst(query, update, UserProfile.class).getMatchedCount() == 0) {
+            migrateProfile(userId);
+            repository.updateFirst(query, update, UserProfile.class);
+        }
+    }
+
+    /**
+     * Creates the profile of a user from their Auth0 user metadata.
+     * The metadata is left in place, so a failed migration loses nothing.
+     *
+     * @param userId the Auth0 user ID.
+     * @return the created profile.
+     */
+    private UserProfile migrateProfile(String userId) {
+        Map<String, Object> metadata = auth0ManagementService.getUser(userId).getUserMetadata();
+        Instant now = Instant.now();
+        UserProfile profile = new UserProfile(
+                userId,
+                readMetadata(metadata, PREFERENCES_KEY, UserPreferences.class),
+                readMetadataList(metadata, COLLECTIONS_KEY, UserCollection.class),
+                readMetadataList(metadata, HISTORY_KEY, UserHistoryEntry.class),
+                now,
+                now
+        );
+
+        try {
+            UserProfile saved = repository.insert(profile);
+            log.info("Migrated application data of user {} from Auth0", userId);
+            return saved;
+        } catch (DuplicateKeyException e) {
+            // Another request migrated the profile concurrently
+            return repository.findById(userId, UserProfile.class);
+        }
+    }
+
+    /**
+     * Reads a value of the user metadata.
+     *
+     * @param metadata the user metadata, may be null.
+     * @param key      the key of the value.
+     * @param type     the type of the value.
+     * @return the value, or null if it is missing.
+     */
+    private <T> T readMetadata(Map<String, Object> metadata, String key, Class<T> type) {
+        if (metadata == null || metadata.get(key) == null) {
+            return null;
+        }
+        return objectMapper.convertValue(metadata.get(key), type);
+    }
+
+    /**
+     * Reads a list of the user metadata.
+     *
+     * @param metadata the user metadata, may be null.
+     * @param key      the key of the list.
+     * @param type     the type of the list elements.
+     * @return the list, empty if it is missing.
+     */
+    private <T> List<T> readMetadataList(Map<String, Object> metadata, String key, Class<T> type) {
+        if (metadata == null || !(metadata.get(key) instanceof List<?> values)) {
+            return new ArrayList<>();
+        }
+        return values.stream()
+                .map(value -> objectMapper.convertValue(value, type))
+                .toList();
+    }
+}
@@ -1,12 +1,15 @@
 package com.tokorokoshi.tokoro.security;
 
 import com.tokorokoshi.tokoro.modules.exceptions.auth0.UserNotAuthenticatedException;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 
+import java.util.Optional;
+
 /**
  * Utility class for security-related operations, specifically for retrieving
  * the authenticated user's ID from the JWT token.
@@ -43,4 +46,25 @@ public class SecurityUtils {
                 "Authentication token is invalid or not a JWT."
         );
     }
+
+    /**
+     * Retrieves the currently authenticated user's ID, if there is one.
+     * Unlike {@link #getAuthenticatedUserId()}, this also works on background threads.
+     *
+     * @return the Auth0 user ID, or empty if no user is authenticated.
+     */
+    public static Optional<String> findAuthenticatedUserId() {
+        Authentication auth = SecurityContextHolder
+                .getContext()
+                .getAuthentication();
+        if (auth == null || auth instanceof AnonymousAuthenticationToken) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(getAuthenticatedUserId());
+        } catch (UserNotAuthenticatedException e) {
+            return Optional.empty();
+        }
+    }
 }
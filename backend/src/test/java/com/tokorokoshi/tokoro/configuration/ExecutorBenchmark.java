@@ -0,0 +1,107 @@
+package com.tokorokoshi.tokoro.configuration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the two execution models on request-like work:
+ * a burst of concurrent tasks that each block on I/O for a few milliseconds,
+ * as calls to Mongo, Auth0, R2 and OpenAI do.
+ * <p>
+ * {@code platform} is a pool the size of Tomcat's default 200 worker threads,
+ * {@code virtual} is the executor of the virtual thread mode.
+ * Both run in forks with the same heap, so only the execution model differs.
+ * </p>
+ * <p>
+ * It is not run by the test suite. Run it from the IDE through {@link #main(String[])},
+ * or after {@code mvn test-compile} with
+ * {@code java -cp target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main ExecutorBenchmark -prof gc}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms256m", "-Xmx256m"})
+public class ExecutorBenchmark {
+    /**
+     * Tomcat's default maximum number of worker threads.
+     */
+    private static final int PLATFORM_THREADS = 200;
+
+    /**
+     * Time each task spends blocked, standing in for a remote call.
+     */
+    private static final long BLOCKING_MILLIS = 10;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"1000", "5000"})
+    public int concurrentRequests;
+
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ExecutorConfiguration configuration = new ExecutorConfiguration();
+        ReflectionTestUtils.setField(configuration, "virtualThreadsEnabled", mode.equals("virtual"));
+        executor = mode.equals("virtual")
+                ? configuration.fileStorageExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+    }
+
+    /**
+     * Serves one burst of concurrent requests; one operation is one burst.
+     */
+    @Benchmark
+    public void burst() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(concurrentRequests);
+        for (int i = 0; i < concurrentRequests; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(BLOCKING_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ExecutorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,84 @@
+package com.tokorokoshi.tokoro.configuration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExecutorConfigurationTests {
+    private final ExecutorConfiguration configuration = new ExecutorConfiguration();
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static Authentication authenticate(String userId) {
+        // Every request gets a context of its own
+        Authentication authentication = new TestingAuthenticationToken(userId, null);
+        SecurityContextHolder.setContext(new SecurityContextImpl(authentication));
+        return authentication;
+    }
+
+    @Test
+    void asyncTasksSeeTheSubmittingUser() throws Exception {
+        // The executor Spring Boot builds for @Async in virtual thread mode
+        var executor = new SimpleAsyncTaskExecutor("async-");
+        executor.setVirtualThreads(true);
+        executor.setTaskDecorator(configuration.securityContextTaskDecorator());
+        Authentication authentication = authenticate("auth0|async");
+
+        var seen = new CompletableFuture<Authentication>();
+        executor.execute(() -> seen.complete(SecurityContextHolder.getContext().getAuthentication()));
+
+        assertThat(seen.get(5, TimeUnit.SECONDS)).isSameAs(authentication);
+    }
+
+    @Test
+    void storageTasksSeeTheSubmittingUserOnVirtualThreads() throws Exception {
+        ReflectionTestUtils.setField(configuration, "virtualThreadsEnabled", true);
+        Authentication authentication = authenticate("auth0|storage");
+
+        try (ExecutorService executor = configuration.fileStorageExecutor()) {
+            var seen = executor.submit(() -> {
+                assertThat(Thread.currentThread().isVirtual()).isTrue();
+                return SecurityContextHolder.getContext().getAuthentication();
+            });
+
+            assertThat(seen.get(5, TimeUnit.SECONDS)).isSameAs(authentication);
+        }
+    }
+
+    @Test
+    void concurrentTasksKeepTheirOwnUser() throws Exception {
+        ReflectionTestUtils.setField(configuration, "virtualThreadsEnabled", true);
+
+        try (ExecutorService executor = configuration.compositeExecutor(4, 16)) {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                authenticate("auth0|" + i);
+                futures.add(executor.submit(() -> {
+                    Thread.sleep(1);
+                    return SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+                }));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                assertThat(futures.get(i).get(5, TimeUnit.SECONDS)).isEqualTo("auth0|" + i);
+            }
+        }
+    }
+}
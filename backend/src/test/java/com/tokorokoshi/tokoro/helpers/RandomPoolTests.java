@@ -0,0 +1,165 @@
+package com.tokorokoshi.tokoro.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RandomPoolTests {
+    private static final List<Integer> CANDIDATES = IntStream.range(0, 100).boxed().toList();
+
+    private long now;
+
+    @Test
+    void drawsDistinctCandidates() {
+        var pool = new RandomPool<>(() -> CANDIDATES);
+
+        for (int i = 0; i < 100; i++) {
+            List<Integer> sample = pool.sample(10);
+            assertThat(sample).hasSize(10).doesNotHaveDuplicates();
+            assertThat(CANDIDATES).containsAll(sample);
+        }
+    }
+
+    @Test
+    void drawsTheWholePoolWhenItIsSmallerThanTheSample() {
+        var pool = new RandomPool<>(() -> List.of(1, 2, 3));
+
+        assertThat(pool.sample(10)).containsExactlyInAnyOrder(1, 2, 3);
+        assertThat(pool.sample(0)).isEmpty();
+        assertThat(pool.sample(-1)).isEmpty();
+    }
+
+    @Test
+    void drawsEveryCandidateEventually() {
+        var pool = new RandomPool<>(() -> CANDIDATES);
+        boolean[] drawn = new boolean[CANDIDATES.size()];
+
+        for (int i = 0; i < 1_000; i++) {
+            pool.sample(5).forEach(candidate -> drawn[candidate] = true);
+        }
+
+        for (boolean candidateDrawn : drawn) {
+            assertThat(candidateDrawn).isTrue();
+        }
+    }
+
+    @Test
+    void loadsOnTheFirstDrawOnly() {
+        var loads = new AtomicInteger();
+        var pool = new RandomPool<>(() -> {
+            loads.incrementAndGet();
+            return CANDIDATES;
+        });
+
+        pool.sample(1);
+        pool.sample(1);
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void foldsRefreshesRequestedDuringARefreshIntoOne() throws Exception {
+        var loads = new AtomicInteger();
+        var loading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var pool = new RandomPool<>(() -> {
+            if (loads.incrementAndGet() == 1) {
+                loading.countDown();
+                await(release);
+            }
+            return CANDIDATES;
+        });
+
+        CompletableFuture<Void> running = CompletableFuture.runAsync(pool::refresh);
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Requested while the first refresh loads: they return at once and leave one more load to it
+        for (int i = 0; i < 10; i++) {
+            pool.refresh();
+        }
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void runsARefreshRequestedWhileADrawLoads() throws Exception {
+        var loads = new AtomicInteger();
+        var loading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var pool = new RandomPool<>(() -> {
+            int load = loads.incrementAndGet();
+            if (load == 1) {
+                loading.countDown();
+                await(release);
+            }
+            return List.of(load);
+        });
+
+        CompletableFuture<List<Integer>> draw = CompletableFuture.supplyAsync(() -> pool.sample(1));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Requested while the draw loads: it returns at once and leaves the load to the draw
+        pool.refresh();
+        release.countDown();
+        draw.get(5, TimeUnit.SECONDS);
+
+        assertThat(loads).hasValue(2);
+        assertThat(pool.sample(1)).containsExactly(2);
+    }
+
+    @Test
+    void reloadsAStalePoolOnDraw() {
+        var loads = new AtomicInteger();
+        var pool = new RandomPool<>(
+                () -> List.of(loads.incrementAndGet()),
+                TimeUnit.MINUTES.toNanos(10),
+                () -> now
+        );
+
+        assertThat(pool.sample(1)).containsExactly(1);
+
+        now += TimeUnit.MINUTES.toNanos(5);
+        assertThat(pool.sample(1)).containsExactly(1);
+
+        now += TimeUnit.MINUTES.toNanos(6);
+        assertThat(pool.sample(1)).containsExactly(2);
+    }
+
+    @Test
+    void failsTheDrawWhenAStalePoolCannotBeReloaded() {
+        var loads = new AtomicInteger();
+        var pool = new RandomPool<>(
+                () -> {
+                    if (loads.incrementAndGet() > 1) {
+                        throw new IllegalStateException("Database is down");
+                    }
+                    return CANDIDATES;
+                },
+                TimeUnit.MINUTES.toNanos(10),
+                () -> now
+        );
+        pool.sample(1);
+
+        now += TimeUnit.MINUTES.toNanos(11);
+
+        assertThatThrownBy(() -> pool.sample(1)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
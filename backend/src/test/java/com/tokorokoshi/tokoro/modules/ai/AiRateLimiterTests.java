@@ -0,0 +1,109 @@
+package com.tokorokoshi.tokoro.modules.ai;
+
+import com.tokorokoshi.tokoro.modules.exceptions.ai.AiRateLimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AiRateLimiterTests {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static void authenticate(String userId) {
+        SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                new User(userId, "", List.of()),
+                null,
+                List.of()
+        ));
+    }
+
+    private double rejected(String reason) {
+        var counter = meterRegistry.find("ai.rate-limit.rejected").tag("reason", reason).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    @Test
+    void rejectsUsersOverTheirLimit() {
+        var limiter = new AiRateLimiter(500, 200_000, 2, 10, 1_000, meterRegistry);
+        authenticate("user-1");
+
+        limiter.acquire(10);
+        limiter.acquire(10);
+
+        assertThatThrownBy(() -> limiter.acquire(10)).isInstanceOf(AiRateLimitExceededException.class);
+        assertThat(rejected("user")).isEqualTo(1);
+
+        // Other users have their own limit
+        authenticate("user-2");
+        limiter.acquire(10);
+    }
+
+    @Test
+    void rejectsWhenTheQueueIsFull() {
+        var limiter = new AiRateLimiter(500, 1_000, 20, 0, 1_000, meterRegistry);
+
+        limiter.acquire(1_000);
+
+        assertThatThrownBy(() -> limiter.acquire(100)).isInstanceOf(AiRateLimitExceededException.class);
+        assertThat(rejected("queue")).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsCallsThatWouldWaitTooLong() {
+        var limiter = new AiRateLimiter(500, 1_000, 20, 10, 100, meterRegistry);
+
+        limiter.acquire(1_000);
+
+        // 500 tokens take 30 seconds to refill
+        assertThatThrownBy(() -> limiter.acquire(500)).isInstanceOf(AiRateLimitExceededException.class);
+        assertThat(rejected("timeout")).isEqualTo(1);
+    }
+
+    @Test
+    void givesTheUserPermitBackWhenTheGlobalLimitRejects() {
+        var limiter = new AiRateLimiter(500, 1_000, 1, 0, 1_000, meterRegistry);
+        limiter.acquire(1_000);
+
+        authenticate("user-1");
+        assertThatThrownBy(() -> limiter.acquire(1_000)).isInstanceOf(AiRateLimitExceededException.class);
+        assertThat(rejected("queue")).isEqualTo(1);
+
+        // A call of no tokens only needs the user permit, which was not used up
+        limiter.acquire(0);
+        assertThat(rejected("user")).isZero();
+    }
+
+    @Test
+    void servesWaitingCallsInArrivalOrder() throws Exception {
+        List<Long> granted = new CopyOnWriteArrayList<>();
+        // 6,000 tokens per minute refill 1 token every 10 ms
+        var limiter = new AiRateLimiter(500, 6_000, 20, 10, 5_000, meterRegistry, granted::add);
+        limiter.acquire(6_000);
+
+        CompletableFuture<Void> large = CompletableFuture.runAsync(() -> limiter.acquire(30));
+        while (meterRegistry.get("ai.rate-limit.queue.depth").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        // A small call that arrives later could be sent first, but must wait its turn
+        limiter.acquire(1);
+        large.get();
+
+        assertThat(granted).containsExactly(6_000L, 30L, 1L);
+    }
+}
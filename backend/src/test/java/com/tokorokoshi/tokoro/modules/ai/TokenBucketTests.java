@@ -0,0 +1,67 @@
+package com.tokorokoshi.tokoro.modules.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TokenBucketTests {
+    private long now;
+
+    @Test
+    void startsFull() {
+        TokenBucket bucket = new TokenBucket(60, () -> now);
+
+        assertThat(bucket.nanosUntilAvailable(60)).isZero();
+    }
+
+    @Test
+    void refillsContinuously() {
+        TokenBucket bucket = new TokenBucket(60, () -> now);
+        bucket.consume(60);
+
+        assertThat(bucket.nanosUntilAvailable(1)).isCloseTo(TimeUnit.SECONDS.toNanos(1), within(1_000L));
+
+        now += TimeUnit.MILLISECONDS.toNanos(500);
+        assertThat(bucket.nanosUntilAvailable(1)).isCloseTo(TimeUnit.MILLISECONDS.toNanos(500), within(1_000L));
+
+        now += TimeUnit.MILLISECONDS.toNanos(500);
+        assertThat(bucket.nanosUntilAvailable(1)).isZero();
+    }
+
+    @Test
+    void refillsUpToTheCapacity() {
+        TokenBucket bucket = new TokenBucket(60, () -> now);
+        bucket.consume(60);
+
+        now += TimeUnit.MINUTES.toNanos(10);
+        assertThat(bucket.nanosUntilAvailable(60)).isZero();
+        bucket.consume(60);
+
+        assertThat(bucket.nanosUntilAvailable(1)).isGreaterThan(0);
+    }
+
+    @Test
+    void treatsRequestsLargerThanTheCapacityAsAFullBucket() {
+        TokenBucket bucket = new TokenBucket(60, () -> now);
+
+        assertThat(bucket.nanosUntilAvailable(1_000)).isZero();
+
+        bucket.consume(1_000);
+        assertThat(bucket.nanosUntilAvailable(1_000)).isCloseTo(TimeUnit.MINUTES.toNanos(1), within(1_000L));
+    }
+
+    @Test
+    void refundsUpToTheCapacity() {
+        TokenBucket bucket = new TokenBucket(60, () -> now);
+        bucket.consume(1);
+        bucket.refund(1);
+        bucket.refund(1);
+
+        assertThat(bucket.nanosUntilAvailable(60)).isZero();
+        bucket.consume(60);
+        assertThat(bucket.nanosUntilAvailable(1)).isGreaterThan(0);
+    }
+}
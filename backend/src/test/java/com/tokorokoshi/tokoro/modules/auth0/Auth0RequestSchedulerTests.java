@@ -0,0 +1,104 @@
+package com.tokorokoshi.tokoro.modules.auth0;
+
+import com.auth0.net.client.Auth0HttpResponse;
+import com.tokorokoshi.tokoro.modules.exceptions.auth0.Auth0RateLimitExceededException;
+import com.tokorokoshi.tokoro.modules.overload.RequestPriority;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class Auth0RequestSchedulerTests {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private static Auth0HttpResponse response(int code, Map<String, String> headers) {
+        return Auth0HttpResponse.newBuilder()
+                .withStatusCode(code)
+                .withHeaders(headers)
+                .build();
+    }
+
+    private static Map<String, String> rateLimitHeaders(long limit, long remaining, Instant reset) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-RateLimit-Limit", String.valueOf(limit));
+        headers.put("X-RateLimit-Remaining", String.valueOf(remaining));
+        headers.put("X-RateLimit-Reset", String.valueOf(reset.getEpochSecond()));
+        return headers;
+    }
+
+    private void awaitQueueDepth(int depth) {
+        while (meterRegistry.get("auth0.rate-limit.queue.depth").gauge().value() < depth) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Test
+    void sendsCallsAtOnceWhileQuotaIsLeft() {
+        var scheduler = new Auth0RequestScheduler(0.2, 100, 1_000, meterRegistry);
+        scheduler.record(response(200, rateLimitHeaders(50, 40, Instant.now().plusSeconds(60))));
+
+        long start = System.nanoTime();
+        scheduler.acquire(RequestPriority.NORMAL);
+        scheduler.release(null);
+        scheduler.acquire(RequestPriority.NORMAL);
+        scheduler.release(null);
+
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void waitsForTheRetryAfterOfARateLimitedResponse() {
+        var scheduler = new Auth0RequestScheduler(0.2, 5_000, 1_000, meterRegistry);
+        scheduler.record(response(429, Map.of("Retry-After", "1")));
+
+        long start = System.nanoTime();
+        scheduler.acquire(RequestPriority.HIGH);
+        scheduler.release(null);
+
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(900));
+        assertThat(meterRegistry.get("auth0.rate-limit.throttled").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsCallsThatWouldWaitPastTheirDeadline() {
+        var scheduler = new Auth0RequestScheduler(0.2, 100, 1_000, meterRegistry);
+        scheduler.record(response(429, Map.of("Retry-After", "5")));
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> scheduler.acquire(RequestPriority.HIGH))
+                .isInstanceOf(Auth0RateLimitExceededException.class);
+
+        // Rejected as soon as the wait is known to be too long, not at the deadline
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(meterRegistry.get("auth0.rate-limit.rejected").tag("reason", "timeout").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void sendsWaitingCallsByPriority() throws Exception {
+        var scheduler = new Auth0RequestScheduler(0, 5_000, 1_000, meterRegistry);
+        // One call left until the reset in a minute, and none before the Retry-After
+        Map<String, String> headers = rateLimitHeaders(50, 1, Instant.now().plusSeconds(60));
+        headers.put("Retry-After", "1");
+        scheduler.record(response(429, headers));
+
+        CompletableFuture<Void> low = CompletableFuture.runAsync(() -> scheduler.acquire(RequestPriority.LOW));
+        awaitQueueDepth(1);
+        CompletableFuture<Void> high = CompletableFuture.runAsync(() -> scheduler.acquire(RequestPriority.HIGH));
+
+        // The call of high priority arrived later but gets the last call of the window
+        high.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> low.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(Auth0RateLimitExceededException.class);
+    }
+}
@@ -0,0 +1,73 @@
+package com.tokorokoshi.tokoro.modules.json;
+
+import com.tokorokoshi.tokoro.modules.tags.dto.TagsDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.ai.converter.BeanOutputConverter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-request cost of preparing a structured AI response type
+ * with and without the {@link JsonSchemaRegistry}.
+ * <p>
+ * It is not run by the test suite. Run it from the IDE through {@link #main(String[])},
+ * which also reports allocations, or after {@code mvn test-compile} with
+ * {@code java -cp target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main JsonSchemaRegistryBenchmark -prof gc}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSchemaRegistryBenchmark {
+    private JsonSchemaRegistry registry;
+
+    @Setup
+    public void setUp() {
+        registry = new JsonSchemaRegistry();
+        registry.getSchema(TagsDto.class);
+        registry.getConverter(TagsDto.class);
+    }
+
+    /**
+     * What every structured request did before the registry:
+     * generate the schema and build a converter.
+     */
+    @Benchmark
+    public void uncached(Blackhole blackhole) {
+        blackhole.consume(JsonHelper.getJsonSchema(TagsDto.class));
+        blackhole.consume(new BeanOutputConverter<>(TagsDto.class));
+    }
+
+    /**
+     * What every structured request does with the registry.
+     */
+    @Benchmark
+    public void cached(Blackhole blackhole) {
+        blackhole.consume(registry.getSchema(TagsDto.class));
+        blackhole.consume(registry.getConverter(TagsDto.class));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JsonSchemaRegistryBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
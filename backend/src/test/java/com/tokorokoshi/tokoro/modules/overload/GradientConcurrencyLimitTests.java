@@ -0,0 +1,118 @@
+package com.tokorokoshi.tokoro.modules.overload;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GradientConcurrencyLimitTests {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Admits as many requests as the limit allows, then completes them all with the same latency.
+     */
+    private static void runAtCapacity(GradientConcurrencyLimit limit, long rttNanos) {
+        int admitted = 0;
+        while (limit.tryAcquire(RequestPriority.HIGH)) {
+            admitted++;
+        }
+        for (int i = 0; i < admitted; i++) {
+            limit.release(rttNanos);
+        }
+    }
+
+    @Test
+    void admitsRequestsUpToTheShareOfTheirPriority() {
+        var limit = new GradientConcurrencyLimit(10, 1, 100);
+
+        int low = 0;
+        while (limit.tryAcquire(RequestPriority.LOW)) {
+            low++;
+        }
+        int high = low;
+        while (limit.tryAcquire(RequestPriority.HIGH)) {
+            high++;
+        }
+
+        assertThat(low).isEqualTo(6);
+        assertThat(high).isEqualTo(10);
+        assertThat(limit.getInflight()).isEqualTo(10);
+    }
+
+    @Test
+    void growsWhileTheLatencyStaysLevel() {
+        var limit = new GradientConcurrencyLimit(10, 1, 100);
+
+        for (int i = 0; i < 20; i++) {
+            runAtCapacity(limit, FAST);
+        }
+
+        assertThat(limit.getLimit()).isGreaterThan(10);
+        assertThat(limit.getInflight()).isZero();
+    }
+
+    @Test
+    void shrinksWhenTheLatencyRises() {
+        var limit = new GradientConcurrencyLimit(50, 1, 100);
+        for (int i = 0; i < 5; i++) {
+            runAtCapacity(limit, FAST);
+        }
+        double before = limit.getLimit();
+
+        for (int i = 0; i < 5; i++) {
+            runAtCapacity(limit, SLOW);
+        }
+
+        assertThat(limit.getLimit()).isLessThan(before);
+    }
+
+    @Test
+    void staysWithinItsBounds() {
+        var limit = new GradientConcurrencyLimit(10, 5, 12);
+
+        for (int i = 0; i < 50; i++) {
+            runAtCapacity(limit, FAST);
+        }
+        assertThat(limit.getLimit()).isEqualTo(12);
+
+        double lowest = limit.getLimit();
+        for (int i = 0; i < 50; i++) {
+            runAtCapacity(limit, SLOW * (i + 1));
+            assertThat(limit.getLimit()).isBetween(5.0, 12.0);
+            lowest = Math.min(lowest, limit.getLimit());
+        }
+        assertThat(lowest).isEqualTo(5);
+    }
+
+    @Test
+    void doesNotGrowWhenMostOfTheLimitIsUnused() {
+        var limit = new GradientConcurrencyLimit(10, 1, 100);
+
+        for (int i = 0; i < 20; i++) {
+            limit.tryAcquire(RequestPriority.HIGH);
+            limit.release(FAST);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void releasesWithoutSamplingTheLatency() {
+        var limit = new GradientConcurrencyLimit(10, 1, 100);
+        runAtCapacity(limit, FAST);
+        double before = limit.getLimit();
+
+        int admitted = 0;
+        while (limit.tryAcquire(RequestPriority.HIGH)) {
+            admitted++;
+        }
+        for (int i = 0; i < admitted; i++) {
+            limit.release();
+        }
+
+        assertThat(limit.getInflight()).isZero();
+        assertThat(limit.getLimit()).isEqualTo(before);
+    }
+}
@@ -0,0 +1,145 @@
+package com.tokorokoshi.tokoro.modules.users;
+
+import com.tokorokoshi.tokoro.modules.auth0.Auth0ManagementService;
+import com.tokorokoshi.tokoro.modules.users.directory.UserDirectoryService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserMetadataWriteBufferTests {
+    private static final String USER_ID = "auth0|user";
+
+    private final Auth0ManagementService auth0ManagementService = mock(Auth0ManagementService.class);
+    private final UserDirectoryService userDirectoryService = mock(UserDirectoryService.class);
+    private final TaskScheduler taskScheduler = mock(TaskScheduler.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * Flushes scheduled by the buffer, run by the tests instead of after the window.
+     */
+    private final Queue<Runnable> scheduled = new ArrayDeque<>();
+
+    private UserMetadataWriteBuffer buffer;
+
+    @BeforeEach
+    void createBuffer() {
+        when(taskScheduler.schedule(any(Runnable.class), any(Instant.class))).thenAnswer(invocation -> {
+            scheduled.add(invocation.getArgument(0));
+            return null;
+        });
+        buffer = new UserMetadataWriteBuffer(
+                auth0ManagementService,
+                userDirectoryService,
+                taskScheduler,
+                1_000,
+                3,
+                meterRegistry
+        );
+    }
+
+    private static Map<String, Object> metadata(Object... keysAndValues) {
+        Map<String, Object> metadata = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            metadata.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return metadata;
+    }
+
+    private void runScheduled() {
+        Runnable flush = scheduled.poll();
+        assertThat(flush).isNotNull();
+        flush.run();
+    }
+
+    @Test
+    void mergesTheUpdatesOfAWindowIntoOneCall() {
+        buffer.write(USER_ID, metadata("theme", "dark", "language", "en"));
+        buffer.write(USER_ID, metadata("language", "fr"));
+
+        assertThat(scheduled).hasSize(1);
+        verify(auth0ManagementService, never()).updateUserMetadata(any(), anyMap());
+
+        runScheduled();
+
+        verify(auth0ManagementService).updateUserMetadata(USER_ID, metadata("theme", "dark", "language", "fr"));
+        verify(userDirectoryService).refresh(USER_ID);
+        assertThat(scheduled).isEmpty();
+    }
+
+    @Test
+    void overlaysTheUpdatesThatWereNotSentYet() {
+        buffer.write(USER_ID, metadata("theme", "dark", "history", null));
+
+        Map<String, Object> read = buffer.overlay(USER_ID, metadata("theme", "light", "history", "x", "language", "en"));
+
+        assertThat(read).isEqualTo(metadata("theme", "dark", "language", "en"));
+        assertThat(buffer.overlay("auth0|other", null)).isNull();
+
+        runScheduled();
+        Map<String, Object> stored = metadata("theme", "light");
+        assertThat(buffer.overlay(USER_ID, stored)).isSameAs(stored);
+    }
+
+    @Test
+    void retriesAFailedUpdateUnderTheNewerOnes() {
+        doThrow(new RuntimeException("Auth0 is down"))
+                .doNothing()
+                .when(auth0ManagementService).updateUserMetadata(eq(USER_ID), anyMap());
+
+        buffer.write(USER_ID, metadata("theme", "dark", "language", "en"));
+        runScheduled();
+
+        buffer.write(USER_ID, metadata("language", "fr"));
+        assertThat(scheduled).hasSize(1);
+        runScheduled();
+
+        verify(auth0ManagementService).updateUserMetadata(USER_ID, metadata("theme", "dark", "language", "fr"));
+        verify(userDirectoryService, times(1)).refresh(USER_ID);
+        assertThat(scheduled).isEmpty();
+    }
+
+    @Test
+    void dropsAnUpdateThatFailedEveryAttempt() {
+        doThrow(new RuntimeException("Auth0 is down"))
+                .when(auth0ManagementService).updateUserMetadata(eq(USER_ID), anyMap());
+
+        buffer.write(USER_ID, metadata("theme", "dark"));
+        runScheduled();
+        runScheduled();
+        runScheduled();
+
+        verify(auth0ManagementService, times(3)).updateUserMetadata(USER_ID, metadata("theme", "dark"));
+        verify(userDirectoryService, never()).refresh(any());
+        assertThat(scheduled).isEmpty();
+        assertThat(meterRegistry.get("users.metadata-buffer.dropped").counter().count()).isEqualTo(1);
+        assertThat(buffer.overlay(USER_ID, null)).isNull();
+    }
+
+    @Test
+    void sendsEverythingOnShutdown() {
+        buffer.write(USER_ID, metadata("theme", "dark"));
+
+        buffer.flushAll();
+
+        verify(auth0ManagementService).updateUserMetadata(USER_ID, metadata("theme", "dark"));
+    }
+}
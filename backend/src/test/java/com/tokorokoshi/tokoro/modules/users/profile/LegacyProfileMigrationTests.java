@@ -0,0 +1,63 @@
+package com.tokorokoshi.tokoro.modules.users.profile;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LegacyProfileMigrationTests {
+    private final Map<String, List<String>> profiles = new HashMap<>();
+    private final List<String> stored = new ArrayList<>();
+    private final AtomicInteger takes = new AtomicInteger();
+    private final AtomicBoolean failStore = new AtomicBoolean();
+
+    private final LegacyProfileMigration<String> migration = new LegacyProfileMigration<>(
+            "items",
+            userId -> {
+                takes.incrementAndGet();
+                List<String> items = profiles.remove(userId);
+                return items != null ? items : List.of();
+            },
+            (userId, items) -> {
+                if (failStore.get()) {
+                    throw new IllegalStateException("store failed");
+                }
+                stored.addAll(items);
+            },
+            profiles::put
+    );
+
+    @Test
+    void movesTheItemsOnceAndSkipsTheProfileAfterwards() {
+        profiles.put("user", List.of("a", "b"));
+
+        migration.migrate("user");
+        migration.migrate("user");
+
+        assertThat(stored).containsExactly("a", "b");
+        assertThat(profiles).doesNotContainKey("user");
+        assertThat(takes).hasValue(1);
+    }
+
+    @Test
+    void putsTheItemsBackAndRetriesWhenStoringFails() {
+        profiles.put("user", List.of("a"));
+        failStore.set(true);
+
+        assertThatThrownBy(() -> migration.migrate("user")).isInstanceOf(IllegalStateException.class);
+        assertThat(profiles).containsEntry("user", List.of("a"));
+
+        failStore.set(false);
+        migration.migrate("user");
+
+        assertThat(stored).containsExactly("a");
+        assertThat(takes).hasValue(2);
+    }
+}